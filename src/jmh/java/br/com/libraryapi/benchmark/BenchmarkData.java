@@ -0,0 +1,124 @@
+package br.com.libraryapi.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deterministic catalog and loan history: titles and authors drawn from small vocabularies so searches
+ * match realistic fractions of the catalog, one customer for every ten loans, loans spread over the last
+ * 30 days and about a third of them still open.
+ */
+public class BenchmarkData {
+
+    private static final String[] WORDS = {
+            "Bourne", "Identidade", "Ultimato", "Supremacia", "Casmurro", "Memorias", "Postumas", "Sertao",
+            "Veredas", "Grande", "Vidas", "Secas", "Cortico", "Iracema", "Guarani", "Senhora", "Capitaes",
+            "Areia", "Tieta", "Agreste", "Quincas", "Borba", "Macunaima", "Hora", "Estrela", "Paixao",
+            "Cidade", "Noite", "Mar", "Morto", "Dona", "Flor", "Maridos", "Gabriela", "Cravo", "Canela"};
+
+    private static final String[] FIRST_NAMES = {
+            "Robert", "Machado", "Jorge", "Clarice", "Graciliano", "Aluisio", "Jose", "Rachel", "Cecilia",
+            "Carlos", "Eric", "Mario", "Lygia", "Erico", "Rubem", "Ariano"};
+
+    private static final String[] LAST_NAMES = {
+            "Ludlum", "Assis", "Amado", "Lispector", "Ramos", "Azevedo", "Alencar", "Queiroz", "Meireles",
+            "Andrade", "Lustbader", "Quintana", "Telles", "Verissimo", "Fonseca", "Suassuna"};
+
+    private static final int BATCH = 10_000;
+
+    private static final int COPIES = 1_000;
+
+    private final int volume;
+
+    private final int customers;
+
+    public BenchmarkData(int volume) {
+        this.volume = volume;
+        this.customers = Math.max(1, volume / 10);
+    }
+
+    public void seed(JdbcTemplate jdbc) {
+        Random random = new Random(42);
+        int[] bookOfLoan = new int[volume];
+        boolean[] returned = new boolean[volume];
+        int[] openLoans = new int[volume + 1];
+        for (int i = 0; i < volume; i++) {
+            bookOfLoan[i] = 1 + random.nextInt(volume);
+            returned[i] = random.nextInt(3) != 0;
+            if (!returned[i]) {
+                openLoans[bookOfLoan[i]]++;
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (int id = 1; id <= volume; id++) {
+            rows.add(new Object[] { id, title(id), author(id), isbn(id), COPIES, COPIES - openLoans[id] });
+            if (rows.size() == BATCH || id == volume) {
+                jdbc.batchUpdate("insert into book (id, title, author, isbn, copies, available_copies) values (?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < volume; i++) {
+            int id = i + 1;
+            int customer = 1 + random.nextInt(customers);
+            rows.add(new Object[] { id, customer(customer), email(customer), bookOfLoan[i],
+                                    Date.valueOf(today.minusDays(random.nextInt(30))), returned[i] });
+            if (rows.size() == BATCH || id == volume) {
+                jdbc.batchUpdate("insert into loan (id, customer, customer_email, id_book, loan_date, returned) values (?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+
+        // hibernate's pooled optimizer hands out the 50 ids below the sequence value
+        jdbc.execute("alter sequence book_seq restart with " + (volume + 51));
+        jdbc.execute("alter sequence loan_seq restart with " + (volume + 51));
+    }
+
+    public int volume() {
+        return volume;
+    }
+
+    public int randomBookId() {
+        return 1 + ThreadLocalRandom.current().nextInt(volume);
+    }
+
+    public String randomIsbn() {
+        return isbn(randomBookId());
+    }
+
+    public String randomCustomer() {
+        return customer(1 + ThreadLocalRandom.current().nextInt(customers));
+    }
+
+    public String randomWord() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    static String isbn(int id) {
+        return String.format("978%010d", id);
+    }
+
+    private static String title(int id) {
+        return WORDS[id % WORDS.length] + " " + WORDS[(id / WORDS.length) % WORDS.length] + " " + id;
+    }
+
+    private static String author(int id) {
+        return FIRST_NAMES[id % FIRST_NAMES.length] + " " + LAST_NAMES[(id / 7) % LAST_NAMES.length];
+    }
+
+    private static String customer(int customer) {
+        return "Customer " + customer;
+    }
+
+    private static String email(int customer) {
+        return "customer" + customer + "@mail.com";
+    }
+}
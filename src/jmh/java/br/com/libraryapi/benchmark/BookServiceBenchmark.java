@@ -0,0 +1,98 @@
+package br.com.libraryapi.benchmark;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
+import br.com.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link BookService} against the seeded database, one random book per invocation. Lookups by id and isbn
+ * go through the application caches, as they do in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class BookServiceBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private BookService bookService;
+
+    private BenchmarkData data;
+
+    private final AtomicInteger nextIsbn = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        bookService = library.bean(BookService.class);
+        data = library.data;
+        nextIsbn.set(data.volume() + 1);
+    }
+
+    @Benchmark
+    public Optional<Book> getById() {
+        return bookService.getById(data.randomBookId());
+    }
+
+    @Benchmark
+    public Optional<Book> getBookByIsbn() {
+        return bookService.getBookByIsbn(data.randomIsbn());
+    }
+
+    @Benchmark
+    public List<Book> getBooksByIsbn() {
+        List<String> isbns = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            isbns.add(data.randomIsbn());
+        }
+        return bookService.getBooksByIsbn(isbns);
+    }
+
+    @Benchmark
+    public Page<Book> findByTitle() {
+        return bookService.find(Book.builder().title(data.randomWord()).build(), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<Book> findByAuthorSortedByTitle() {
+        return bookService.find(Book.builder().author("ludlum").build(), PageRequest.of(0, PAGE_SIZE, Sort.by("title")));
+    }
+
+    @Benchmark
+    public KeysetSlice<Book> findAfterCursor() {
+        int id = data.randomBookId();
+        return bookService.find(new Book(), new Keyset("id", Sort.Direction.ASC, String.valueOf(id), id),
+                                PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Book update() {
+        Book book = bookService.getById(data.randomBookId()).get();
+        book.setTitle(book.getTitle());
+        return bookService.update(book);
+    }
+
+    @Benchmark
+    public Book saveAndDelete() {
+        Book book = bookService.save(Book.builder()
+                                         .title("Benchmark")
+                                         .author("Benchmark")
+                                         .isbn(BenchmarkData.isbn(nextIsbn.getAndIncrement()))
+                                         .build());
+        bookService.delete(book);
+        return book;
+    }
+}
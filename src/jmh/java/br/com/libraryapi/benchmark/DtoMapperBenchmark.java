@@ -0,0 +1,89 @@
+package br.com.libraryapi.benchmark;
+
+import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.api.dto.LoanDTO;
+import br.com.libraryapi.api.mapper.BookMapper;
+import br.com.libraryapi.api.mapper.BookMapperImpl;
+import br.com.libraryapi.api.mapper.LoanMapper;
+import br.com.libraryapi.api.mapper.LoanMapperImpl;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the specialized DTO mappers with the {@link ModelMapper} conversions the controllers used to do,
+ * over one listing page of books and loans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMapperBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+
+    private List<Book> books;
+    private List<Loan> loans;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        bookMapper = new BookMapperImpl();
+        loanMapper = new LoanMapperImpl(bookMapper);
+
+        books = new ArrayList<>(pageSize);
+        loans = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Book book = Book.builder().id(i).title("Title " + i).author("Author " + i).isbn("isbn-" + i).build();
+            books.add(book);
+            loans.add(Loan.builder().id(i).book(book).customer("Customer " + i)
+                    .customerEmail("customer" + i + "@mail.com").loanDate(LocalDate.now()).build());
+        }
+    }
+
+    @Benchmark
+    public List<BookDTO> bookPageModelMapper() {
+        return books.stream()
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<BookDTO> bookPageSpecialized() {
+        return books.stream()
+                .map(bookMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<LoanDTO> loanPageModelMapper() {
+        return loans.stream()
+                .map(loan -> {
+                    BookDTO bookDTO = modelMapper.map(loan.getBook(), BookDTO.class);
+                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+                    loanDTO.setBook(bookDTO);
+                    return loanDTO;
+                }).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<LoanDTO> loanPageSpecialized() {
+        return loans.stream()
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load comparison of platform and virtual thread request handling: many concurrent clients against the
+ * embedded Tomcat, on endpoints that block on the database. Needs JDK 21+ for the virtual thread variant.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Threads(400)
+public class HttpLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ServerState extends LibraryState {
+
+        @Param({"false", "true"})
+        public boolean virtualThreads;
+
+        HttpClient client;
+
+        String baseUrl;
+
+        @Override
+        protected String[] properties() {
+            return new String[] { "application.virtual-threads.enabled=" + virtualThreads };
+        }
+
+        @Override
+        protected void started() {
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            client = HttpClient.newBuilder()
+                               .executor(Executors.newFixedThreadPool(32))
+                               .connectTimeout(Duration.ofSeconds(10))
+                               .build();
+        }
+    }
+
+    @Benchmark
+    public int getBook(ServerState state) throws IOException, InterruptedException {
+        return get(state, "/api/books/" + state.data.randomBookId());
+    }
+
+    @Benchmark
+    public int findLoans(ServerState state) throws IOException, InterruptedException {
+        return get(state, "/api/loans?customer=" + state.data.randomCustomer().replace(' ', '+') + "&size=20");
+    }
+
+    private int get(ServerState state, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(state.baseUrl + path)).GET().build();
+        return state.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
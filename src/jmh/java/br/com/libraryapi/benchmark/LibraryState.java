@@ -0,0 +1,69 @@
+package br.com.libraryapi.benchmark;
+
+import br.com.libraryapi.LibraryApiApplication;
+import br.com.libraryapi.service.BookSearchIndex;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The whole application on an in-memory H2 seeded with {@code volume} books and as many loans. One context
+ * is started per trial, so every volume is measured against a fresh database.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    @Param({"10000", "100000", "1000000"})
+    public int volume;
+
+    public ConfigurableApplicationContext context;
+
+    public BenchmarkData data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark-" + volume + ";DB_CLOSE_DELAY=-1",
+                            "server.port=0",
+                            "logging.level.root=WARN",
+                            "logging.file=",
+                            "application.mail.outbox.poll-interval-ms=86400000")
+                .properties(properties())
+                .run();
+
+        data = new BenchmarkData(volume);
+        data.seed(context.getBean(JdbcTemplate.class));
+        // the index was built when the application started, before the data existed
+        context.getBean(BookSearchIndex.class).rebuild();
+        started();
+    }
+
+    /**
+     * Extra application properties for states measuring a configuration variant.
+     */
+    protected String[] properties() {
+        return new String[0];
+    }
+
+    /**
+     * Called once the application is up and seeded.
+     */
+    protected void started() {
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,64 @@
+package br.com.libraryapi.benchmark;
+
+import br.com.libraryapi.api.dto.LoanDTO;
+import br.com.libraryapi.api.mapper.BookMapperImpl;
+import br.com.libraryapi.api.mapper.LoanMapper;
+import br.com.libraryapi.api.mapper.LoanMapperImpl;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of one {@code Page<LoanDTO>} as returned by {@code GET /api/loans}, with the object
+ * mapper configured the way Spring Boot configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanPageJsonBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+
+    private Page<LoanDTO> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LoanMapper loanMapper = new LoanMapperImpl(new BookMapperImpl());
+
+        List<LoanDTO> loans = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Book book = Book.builder().id(i).title("Title " + i).author("Author " + i).isbn(BenchmarkData.isbn(i)).copies(3).build();
+            loans.add(loanMapper.toDTO(Loan.builder().id(i).book(book).customer("Customer " + i)
+                                           .customerEmail("customer" + i + "@mail.com").loanDate(LocalDate.now()).build()));
+        }
+        page = new PageImpl<>(loans, PageRequest.of(0, pageSize), 10_000);
+    }
+
+    @Benchmark
+    public String serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(page);
+    }
+
+    @Benchmark
+    public byte[] serializeToBytes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,142 @@
+package br.com.libraryapi.benchmark;
+
+import br.com.libraryapi.api.dto.LoanDTO;
+import br.com.libraryapi.api.dto.LoanFilterDTO;
+import br.com.libraryapi.api.mapper.LoanMapper;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanCheckout;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
+import br.com.libraryapi.service.LoanService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * {@link LoanService} against the seeded database. Checkouts are paired with their return so the copies of
+ * the seeded books never run out, however long the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class LoanServiceBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private LoanService loanService;
+
+    private LoanMapper loanMapper;
+
+    private ObjectMapper objectMapper;
+
+    private BenchmarkData data;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        loanService = library.bean(LoanService.class);
+        loanMapper = library.bean(LoanMapper.class);
+        objectMapper = library.bean(ObjectMapper.class);
+        data = library.data;
+    }
+
+    @Benchmark
+    public Loan checkoutAndReturn() {
+        Loan loan = loanService.save(newLoan());
+        loan.setReturned(true);
+        return loanService.update(loan);
+    }
+
+    @Benchmark
+    public List<Loan> saveAllAndReturn() {
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            loans.add(newLoan());
+        }
+        for (LoanCheckout checkout : loanService.saveAll(loans)) {
+            if (checkout.isAccepted()) {
+                checkout.getLoan().setReturned(true);
+                loanService.update(checkout.getLoan());
+            }
+        }
+        return loans;
+    }
+
+    @Benchmark
+    public Optional<Loan> getById() {
+        return loanService.getById(data.randomBookId());
+    }
+
+    @Benchmark
+    public Page<Loan> findByIsbnOrCustomer() {
+        return loanService.find(filter(), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public KeysetSlice<Loan> findByIsbnOrCustomerAfterCursor() {
+        int id = data.randomBookId();
+        return loanService.find(filter(), new Keyset("id", Sort.Direction.ASC, String.valueOf(id), id),
+                                PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public void exportByCustomer(Blackhole blackhole) {
+        loanService.export(LoanFilterDTO.builder().customer(data.randomCustomer()).build(), blackhole::consume);
+    }
+
+    @Benchmark
+    public Page<Loan> getLoansByBook() {
+        return loanService.getLoansByBook(Book.builder().id(data.randomBookId()).build(), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<Loan> getLateLoansChunk() {
+        return loanService.getLateLoans("", 0, 500);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public List<Loan> getAllLateLoans() {
+        return loanService.getAllLateLoans();
+    }
+
+    /**
+     * The whole listing endpoint minus HTTP: query, DTO mapping and JSON.
+     */
+    @Benchmark
+    public String findPageAsJson() throws JsonProcessingException {
+        PageRequest pageable = PageRequest.of(0, PAGE_SIZE);
+        Page<Loan> result = loanService.find(filter(), pageable);
+        List<LoanDTO> loans = result.getContent().stream().map(loanMapper::toDTO).collect(Collectors.toList());
+        return objectMapper.writeValueAsString(new PageImpl<>(loans, pageable, result.getTotalElements()));
+    }
+
+    private LoanFilterDTO filter() {
+        return LoanFilterDTO.builder().isbn(data.randomIsbn()).customer(data.randomCustomer()).build();
+    }
+
+    private Loan newLoan() {
+        return Loan.builder()
+                   .book(Book.builder().id(data.randomBookId()).build())
+                   .customer(data.randomCustomer())
+                   .loanDate(LocalDate.now())
+                   .build();
+    }
+}
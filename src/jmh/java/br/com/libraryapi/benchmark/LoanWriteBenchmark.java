@@ -0,0 +1,62 @@
+package br.com.libraryapi.benchmark;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.service.LoanService;
+import br.com.libraryapi.service.LoanWriteBatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout and return under burst load, one transaction per request against group commit. Run with many
+ * threads: coalescing only pays off when requests actually overlap.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Threads(64)
+public class LoanWriteBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class WriteState extends LibraryState {
+
+        @Param({"false", "true"})
+        public boolean groupCommit;
+
+        LoanService loanService;
+
+        LoanWriteBatcher batcher;
+
+        @Override
+        protected String[] properties() {
+            return new String[] { "application.loans.group-commit.enabled=" + groupCommit };
+        }
+
+        @Override
+        protected void started() {
+            loanService = bean(LoanService.class);
+            batcher = groupCommit ? bean(LoanWriteBatcher.class) : null;
+        }
+    }
+
+    @Benchmark
+    public Loan checkoutAndReturn(WriteState state) {
+        Loan loan = Loan.builder()
+                        .book(Book.builder().id(state.data.randomBookId()).build())
+                        .customer(state.data.randomCustomer())
+                        .loanDate(LocalDate.now())
+                        .build();
+        if (state.batcher != null) {
+            loan = state.batcher.save(loan);
+            loan.setReturned(true);
+            return state.batcher.update(loan);
+        }
+        loan = state.loanService.save(loan);
+        loan.setReturned(true);
+        return state.loanService.update(loan);
+    }
+}
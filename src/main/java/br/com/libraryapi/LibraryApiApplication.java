@@ -1,11 +1,15 @@
 package br.com.libraryapi;
 
 import br.com.libraryapi.service.EmailService;
-import org.modelmapper.ModelMapper;
+import br.com.libraryapi.api.mapper.BookMapper;
+import br.com.libraryapi.api.mapper.BookMapperImpl;
+import br.com.libraryapi.api.mapper.LoanMapper;
+import br.com.libraryapi.api.mapper.LoanMapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -15,11 +19,17 @@ import java.util.List;
 
 @SpringBootApplication
 @EnableScheduling
+@EnableCaching
 public class LibraryApiApplication {
 
 	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+	public BookMapper bookMapper() {
+		return new BookMapperImpl();
+	}
+
+	@Bean
+	public LoanMapper loanMapper(BookMapper bookMapper) {
+		return new LoanMapperImpl(bookMapper);
 	}
 
 
@@ -1,7 +1,9 @@
 package br.com.libraryapi.api;
 
 import br.com.libraryapi.api.exception.ApiErrors;
+import br.com.libraryapi.config.BusinessMetrics;
 import br.com.libraryapi.exception.BussinessException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -9,11 +11,17 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.ConstraintViolationException;
+
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
 
+    @Autowired(required = false)
+    private BusinessMetrics businessMetrics;
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleValidationExceptions (MethodArgumentNotValidException exception) {
@@ -21,6 +29,12 @@ public class ApplicationControllerAdvice {
         return new ApiErrors(bindingResult);
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrors handleConstraintViolationException (ConstraintViolationException exception) {
+        return new ApiErrors(exception);
+    }
+
     @ExceptionHandler(BussinessException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleBusinessException (BussinessException exception) {
@@ -28,7 +42,10 @@ public class ApplicationControllerAdvice {
     }
 
     @ExceptionHandler(ResponseStatusException.class)
-    public ResponseEntity handleResponseStatusException(ResponseStatusException exception) {
+    public ResponseEntity handleResponseStatusException(ResponseStatusException exception, HandlerMethod handlerMethod) {
+        if (exception.getStatus() == HttpStatus.NOT_FOUND && handlerMethod != null && businessMetrics != null) {
+            businessMetrics.notFound(handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+        }
         return new ResponseEntity(new ApiErrors(exception), exception.getStatus());
     }
 }
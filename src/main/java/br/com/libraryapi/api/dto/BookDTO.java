@@ -3,6 +3,7 @@ package br.com.libraryapi.api.dto;
 import lombok.*;
 
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Positive;
 
 @Getter
 @Setter
@@ -21,5 +22,8 @@ public class BookDTO {
 
 	@NotEmpty
 	private String isbn;
+
+	@Positive
+	private Integer copies;
 	
 }
@@ -0,0 +1,28 @@
+package br.com.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+
+    private int total;
+
+    private int created;
+
+    private int duplicated;
+
+    private int invalid;
+
+    private List<BookImportRowDTO> rejected;
+
+    // rejected rows beyond the listed ones, counted in duplicated and invalid
+    private int rejectedOmitted;
+}
@@ -0,0 +1,23 @@
+package br.com.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportRowDTO {
+
+    public enum Status { INVALID, DUPLICATED }
+
+    private int line;
+
+    private String isbn;
+
+    private Status status;
+
+    private String message;
+}
@@ -0,0 +1,28 @@
+package br.com.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CirculationStatsDTO {
+
+    // set for the stats of a single book only
+    private Integer bookId;
+
+    private long activeLoans;
+
+    // not set for a single book
+    private Long overdueLoans;
+
+    private long totalLoans;
+
+    // last time the counters were rebuilt from the database
+    private LocalDateTime reconciledAt;
+}
@@ -0,0 +1,23 @@
+package br.com.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanBatchItemDTO {
+
+    public enum Status { CREATED, BOOK_NOT_FOUND, ALREADY_LOANED }
+
+    private String isbn;
+
+    private Integer id;
+
+    private Status status;
+
+    private String message;
+}
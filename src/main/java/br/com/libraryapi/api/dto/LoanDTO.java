@@ -25,5 +25,8 @@ public class LoanDTO {
     @NotEmpty
     private String customerEmail;
 
+    // set by the server, see GET /api/customers/{id}/loans
+    private Integer customerId;
+
     private BookDTO book;
 }
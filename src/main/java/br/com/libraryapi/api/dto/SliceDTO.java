@@ -0,0 +1,25 @@
+package br.com.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SliceDTO<T> {
+
+    private List<T> content;
+
+    private int size;
+
+    private int numberOfElements;
+
+    private boolean hasNext;
+
+    private String next;
+}
@@ -4,6 +4,8 @@ import br.com.libraryapi.exception.BussinessException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.ConstraintViolationException;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -16,6 +18,11 @@ public class ApiErrors {
         bindingResult.getAllErrors().forEach( error -> this.errors.add(error.getDefaultMessage()) );
     }
 
+    public ApiErrors(ConstraintViolationException exception) {
+        this.errors = new ArrayList<>();
+        exception.getConstraintViolations().forEach( violation -> this.errors.add(violation.getMessage()) );
+    }
+
     public ApiErrors(BussinessException exception) {
         this.errors = Arrays.asList(exception.getMessage());
     }
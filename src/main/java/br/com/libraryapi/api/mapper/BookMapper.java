@@ -0,0 +1,11 @@
+package br.com.libraryapi.api.mapper;
+
+import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.model.Book;
+
+public interface BookMapper {
+
+    BookDTO toDTO(Book book);
+
+    Book toEntity(BookDTO dto);
+}
@@ -0,0 +1,32 @@
+package br.com.libraryapi.api.mapper;
+
+import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.model.Book;
+
+/**
+ * Hand written {@link BookMapper}: plain getter/setter copies, no reflection or intermediate objects.
+ */
+public class BookMapperImpl implements BookMapper {
+
+    @Override
+    public BookDTO toDTO(Book book) {
+        if (book == null) {
+            return null;
+        }
+        return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getCopies());
+    }
+
+    @Override
+    public Book toEntity(BookDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        Book book = new Book();
+        book.setId(dto.getId());
+        book.setTitle(dto.getTitle());
+        book.setAuthor(dto.getAuthor());
+        book.setIsbn(dto.getIsbn());
+        book.setCopies(dto.getCopies());
+        return book;
+    }
+}
@@ -0,0 +1,9 @@
+package br.com.libraryapi.api.mapper;
+
+import br.com.libraryapi.api.dto.LoanDTO;
+import br.com.libraryapi.model.Loan;
+
+public interface LoanMapper {
+
+    LoanDTO toDTO(Loan loan);
+}
@@ -0,0 +1,33 @@
+package br.com.libraryapi.api.mapper;
+
+import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.api.dto.LoanDTO;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+
+/**
+ * Hand written {@link LoanMapper}, maps the loaned book into the nested {@link BookDTO}.
+ */
+public class LoanMapperImpl implements LoanMapper {
+
+    private final BookMapper bookMapper;
+
+    public LoanMapperImpl(BookMapper bookMapper) {
+        this.bookMapper = bookMapper;
+    }
+
+    @Override
+    public LoanDTO toDTO(Loan loan) {
+        if (loan == null) {
+            return null;
+        }
+        Book book = loan.getBook();
+        BookDTO bookDTO = bookMapper.toDTO(book);
+        return new LoanDTO(loan.getId(),
+                           book != null ? book.getIsbn() : null,
+                           loan.getCustomer(),
+                           loan.getCustomerEmail(),
+                           loan.getCustomerId(),
+                           bookDTO);
+    }
+}
@@ -1,29 +1,46 @@
 package br.com.libraryapi.api.resource;
 
+import br.com.libraryapi.api.dto.BookImportResultDTO;
 import br.com.libraryapi.api.dto.LoanDTO;
+import br.com.libraryapi.api.dto.SliceDTO;
 import br.com.libraryapi.api.exception.ApiErrors;
+import br.com.libraryapi.api.mapper.BookMapper;
+import br.com.libraryapi.api.mapper.LoanMapper;
 import br.com.libraryapi.exception.BussinessException;
 import br.com.libraryapi.model.Book;
 import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
+import br.com.libraryapi.service.BookImportFormat;
+import br.com.libraryapi.service.BookImportService;
+import br.com.libraryapi.service.BookJsonCache;
 import br.com.libraryapi.service.BookService;
 import br.com.libraryapi.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import br.com.libraryapi.api.dto.BookDTO;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -40,25 +57,68 @@ public class BookController {
 	private LoanService loanService;
 
 	@Autowired
-	private ModelMapper modelMapper;
+	private BookImportService bookImportService;
+
+	@Autowired
+	private BookMapper bookMapper;
+
+	@Autowired
+	private LoanMapper loanMapper;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	// serialized books kept off heap, absent in web slice tests
+	@Autowired(required = false)
+	private BookJsonCache bookJsonCache;
 
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
 	@ApiOperation("Create a book")
 	public BookDTO create(@RequestBody @Valid BookDTO dto) {
 		log.info("Creating a book for isbn: {} ", dto.getIsbn());
-		Book book = modelMapper.map(dto, Book.class);
+		Book book = bookMapper.toEntity(dto);
 		book = bookService.save(book);
-		return modelMapper.map(book, BookDTO.class);
+		return bookMapper.toDTO(book);
+	}
+
+	@PostMapping(value = "bulk", consumes = {"application/x-ndjson", "text/csv"})
+	@ApiOperation("Import books in bulk from NDJSON or CSV (title,author,isbn header)")
+	public BookImportResultDTO importBooks(HttpServletRequest request) throws IOException {
+		log.info("Importing books in bulk");
+		return bookImportService.importBooks(request.getInputStream(), BookImportFormat.of(request.getContentType()));
 	}
 
 	@GetMapping("{id}")
-	@ApiOperation("Find a book details by id")
-	public BookDTO get(@PathVariable Integer id) {
+	@ApiOperation(value = "Find a book details by id", response = BookDTO.class)
+	public void get(@PathVariable Integer id, WebRequest request, HttpServletResponse response) throws IOException {
 		log.info("Get book details for book id: {} ", id);
-	    return bookService.getById(id)
-                          .map(book -> modelMapper.map(book, BookDTO.class))
-                          .orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		// the body is written here, from the off heap copy when there is one; a 304 is left to checkNotModified
+		if (bookJsonCache == null || !bookJsonCache.isEnabled()) {
+			Book book = bookService.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+			// sets the ETag header, and answers 304 before mapping when the client copy is current
+			if (!notModified(request, eTag(book))) {
+				byte[] json = objectMapper.writeValueAsBytes(bookMapper.toDTO(book));
+				writeJson(response, json, json.length);
+			}
+			return;
+		}
+
+		BookJsonCache.Hit hit = bookJsonCache.get(id);
+		if (hit != null) {
+			if (!notModified(request, eTag(hit.getVersion()))) {
+				writeJson(response, hit.getBytes(), hit.getLength());
+			}
+			return;
+		}
+		long stamp = bookJsonCache.stamp(id);
+		Book book = bookService.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		if (notModified(request, eTag(book))) {
+			return;
+		}
+		byte[] json = objectMapper.writeValueAsBytes(bookMapper.toDTO(book));
+		bookJsonCache.put(id, book.getVersion(), json, stamp);
+		writeJson(response, json, json.length);
     }
 
     @DeleteMapping("{id}")
@@ -71,34 +131,64 @@ public class BookController {
 	}
 
 	@PutMapping("{id}")
-	@ApiOperation("Update a book by id")
-	public BookDTO update(@PathVariable Integer id, @RequestBody @Valid BookDTO dto) {
+	@ApiOperation("Update a book by id, only if it still matches the If-Match ETag when given")
+	public ResponseEntity<BookDTO> update(@PathVariable Integer id, @RequestBody @Valid BookDTO dto,
+										  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 		log.info("Update book of id: {} ", id);
-        return bookService.getById(id).map(book -> {
-
-			book.setAuthor(dto.getAuthor());
-			book.setTitle(dto.getTitle());
-			book = bookService.update(book);
-			return modelMapper.map(book, BookDTO.class);
+		Book book = bookService.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		if (ifMatch != null && !matches(ifMatch, eTag(book))) {
+			throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+		}
 
-		}).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		// the book may be the instance shared by the cache, so the changes go to a copy
+		Book changed = book.toBuilder().author(dto.getAuthor()).title(dto.getTitle()).build();
+		try {
+			book = bookService.update(changed);
+		} catch (OptimisticLockingFailureException e) {
+			// changed by someone else between the read and the update
+			throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT);
+		}
+		return withETag(eTag(book), bookMapper.toDTO(book));
     }
 
     @GetMapping
 	@ApiOperation("Get all books")
-    public Page<BookDTO> find(BookDTO dto, Pageable pageable) {
+    public Page<BookDTO> find(BookDTO dto, Pageable pageable, WebRequest request) {
 		log.info("Get All books");
-		Book filter = modelMapper.map(dto, Book.class);
+		Book filter = bookMapper.toEntity(dto);
 		Page<Book> result = bookService.find(filter, pageable);
+		if (notModified(request, eTag(result.getContent(), result.getTotalElements()))) {
+			return null;
+		}
 		List<BookDTO> list = result.getContent()
 				.stream()
-				.map(entity -> modelMapper.map(entity, BookDTO.class))
+				.map(bookMapper::toDTO)
 				.collect(Collectors.toList());
 
 		return new PageImpl<BookDTO>(list, pageable, result.getTotalElements());
 
 	}
 
+	@GetMapping(params = "after")
+	@ApiOperation("Get books with cursor pagination, without total count")
+	public SliceDTO<BookDTO> find(BookDTO dto, @RequestParam("after") String after, Pageable pageable) {
+		log.info("Get books after cursor");
+		Book filter = bookMapper.toEntity(dto);
+		KeysetSlice<Book> result = bookService.find(filter, Keyset.decode(after), pageable);
+		List<BookDTO> list = result.getContent()
+				.stream()
+				.map(bookMapper::toDTO)
+				.collect(Collectors.toList());
+
+		return SliceDTO.<BookDTO>builder()
+				.content(list)
+				.size(pageable.getPageSize())
+				.numberOfElements(list.size())
+				.hasNext(result.isHasNext())
+				.next(result.getNext() != null ? result.getNext().encode() : null)
+				.build();
+	}
+
 	@GetMapping("{id}/loans")
 	@ApiOperation("Get all loans from a book by id")
 	public Page<LoanDTO> loansByBook(@PathVariable Integer id, Pageable pageable) {
@@ -107,14 +197,67 @@ public class BookController {
 		Page<Loan> result = loanService.getLoansByBook(book, pageable);
 		List<LoanDTO> list = result.getContent()
 				.stream()
-				.map(loan -> {
-					Book loanBook = loan.getBook();
-					BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-					LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-					loanDTO.setBook(bookDTO);
-					return loanDTO;
-				}).collect(Collectors.toList());
+				.map(loanMapper::toDTO)
+				.collect(Collectors.toList());
 
 		return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
 	}
+
+	private static void writeJson(HttpServletResponse response, byte[] json, int length) throws IOException {
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setContentLength(length);
+		response.getOutputStream().write(json, 0, length);
+	}
+
+	private static boolean notModified(WebRequest request, String eTag) {
+		return eTag != null && request.checkNotModified(eTag);
+	}
+
+	private static <T> ResponseEntity<T> withETag(String eTag, T body) {
+		return eTag == null ? ResponseEntity.ok(body) : ResponseEntity.ok().eTag(eTag).body(body);
+	}
+
+	/**
+	 * @return the strong ETag of a book, its optimistic lock version.
+	 */
+	static String eTag(Book book) {
+		return eTag(book.getVersion());
+	}
+
+	static String eTag(Integer version) {
+		return version == null ? null : "\"" + version + "\"";
+	}
+
+	/**
+	 * @return a weak ETag of a page, derived from the id and version of its books and the total count, or null
+	 * when some book has no version.
+	 */
+	static String eTag(List<Book> books, long total) {
+		long hash = total;
+		for (Book book : books) {
+			if (book.getVersion() == null) {
+				return null;
+			}
+			hash = 31 * (31 * hash + book.getId()) + book.getVersion();
+		}
+		return "W/\"" + Long.toHexString(hash) + "\"";
+	}
+
+	/**
+	 * Strong comparison of an If-Match header, which may list several ETags or be {@code *}.
+	 */
+	static boolean matches(String ifMatch, String eTag) {
+		if (ifMatch.trim().equals("*")) {
+			return true;
+		}
+		if (eTag == null) {
+			return false;
+		}
+		for (String candidate : ifMatch.split(",")) {
+			if (candidate.trim().equals(eTag)) {
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,126 @@
+package br.com.libraryapi.api.resource;
+
+import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.api.mapper.BookMapper;
+import br.com.libraryapi.config.ConsistencyTokenFilter;
+import br.com.libraryapi.config.ReplicaRoutingDataSource;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.KeysetSlice;
+import br.com.libraryapi.service.BookSearchIndex;
+import br.com.libraryapi.service.BookService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * Read only view of the catalog for search heavy traffic, enabled with
+ * {@code application.catalog.reactive.enabled=true}. Writes stay on {@link BookController}.
+ *
+ * Books are served from {@link BookSearchIndex}, so requests never wait on a database connection. Results are
+ * streamed one book at a time as {@code application/stream+json}: the next book is only read once the previous
+ * one was written, so a slow client holds back its own stream instead of buffering the whole catalog. Until the
+ * index is loaded, and for filters the index cannot answer, reads fall back to the database on the bounded
+ * elastic scheduler, in keyset slices ordered by id. Those reads keep the routing of the request: a client
+ * reading its own writes (see {@link ConsistencyTokenFilter}) is served by the primary on the scheduler's
+ * threads too.
+ */
+@RestController
+@RequestMapping("/api/catalog/books")
+@Api("Catalog API")
+@Slf4j
+@ConditionalOnProperty(name = "application.catalog.reactive.enabled", havingValue = "true")
+public class CatalogController {
+
+    private final BookSearchIndex bookSearchIndex;
+
+    private final BookService bookService;
+
+    private final BookMapper bookMapper;
+
+    private final int prefetch;
+
+    public CatalogController(BookSearchIndex bookSearchIndex,
+                             BookService bookService,
+                             BookMapper bookMapper,
+                             @Value("${application.catalog.reactive.prefetch:256}") int prefetch) {
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookService = bookService;
+        this.bookMapper = bookMapper;
+        this.prefetch = prefetch;
+    }
+
+    @GetMapping("{id}")
+    @ApiOperation("Find a book of the catalog by id")
+    public Mono<BookDTO> get(@PathVariable Integer id) {
+        boolean primaryRequired = ReplicaRoutingDataSource.isPrimaryRequired();
+        Mono<Book> book = bookSearchIndex.isReady()
+                ? Mono.fromSupplier(() -> bookSearchIndex.get(id)).flatMap(Mono::justOrEmpty)
+                : blocking(primaryRequired, () -> bookService.getById(id)).flatMap(Mono::justOrEmpty);
+        return book.map(bookMapper::toDTO)
+                   .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ApiOperation("Stream the books of the catalog matching title, author and isbn, best matches first")
+    public Flux<BookDTO> find(BookDTO dto) {
+        log.info("Streaming catalog books");
+        Book filter = bookMapper.toEntity(dto);
+        Flux<Book> books;
+        if (bookSearchIndex.isReady() && isEmpty(filter)) {
+            books = Flux.defer(() -> Flux.fromIterable(bookSearchIndex.all()));
+        } else if (bookSearchIndex.supports(filter, Pageable.unpaged())) {
+            books = Flux.defer(() -> Flux.fromIterable(bookSearchIndex.rank(filter)))
+                        .map(bookSearchIndex::get)
+                        .filter(Optional::isPresent)
+                        .map(Optional::get);
+        } else {
+            books = fromDatabase(filter);
+        }
+        return books.map(bookMapper::toDTO).limitRate(prefetch);
+    }
+
+    /**
+     * Reads the matching books ordered by id, one keyset slice per request for more elements.
+     */
+    private Flux<Book> fromDatabase(Book filter) {
+        PageRequest page = PageRequest.of(0, prefetch, Sort.by("id"));
+        // taken on the request thread, the next slices are asked for from the scheduler's threads
+        boolean primaryRequired = ReplicaRoutingDataSource.isPrimaryRequired();
+        return blocking(primaryRequired, () -> bookService.find(filter, null, page))
+                .expand(slice -> slice.getNext() == null
+                        ? Mono.empty()
+                        : blocking(primaryRequired, () -> bookService.find(filter, slice.getNext(), page)))
+                .concatMapIterable(KeysetSlice::getContent);
+    }
+
+    private boolean isEmpty(Book filter) {
+        return filter.getId() == null
+                && filter.getTitle() == null
+                && filter.getAuthor() == null
+                && filter.getIsbn() == null
+                && filter.getCopies() == null;
+    }
+
+    private <T> Mono<T> blocking(boolean primaryRequired, Callable<T> call) {
+        return Mono.fromCallable(() -> ReplicaRoutingDataSource.call(primaryRequired, call))
+                   .subscribeOn(Schedulers.boundedElastic());
+    }
+}
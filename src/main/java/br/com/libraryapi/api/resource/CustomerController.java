@@ -0,0 +1,52 @@
+package br.com.libraryapi.api.resource;
+
+import br.com.libraryapi.api.dto.LoanDTO;
+import br.com.libraryapi.api.mapper.LoanMapper;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.service.CustomerService;
+import br.com.libraryapi.service.LoanService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("api/customers")
+@Api("Customer API")
+public class CustomerController {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanMapper loanMapper;
+
+    @GetMapping("{id}/loans")
+    @ApiOperation("Obtains the loans of a customer, newest first")
+    public Page<LoanDTO> loans(@PathVariable Integer id, Pageable pageable) {
+        customerService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Page<Loan> result = loanService.getLoansByCustomer(id, pageable);
+
+        List<LoanDTO> loans = result
+                .getContent()
+                .stream()
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+
+        return new PageImpl<LoanDTO>(loans, result.getPageable(), result.getTotalElements());
+    }
+}
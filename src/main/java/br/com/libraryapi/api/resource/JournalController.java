@@ -0,0 +1,65 @@
+package br.com.libraryapi.api.resource;
+
+import br.com.libraryapi.model.LoanEvent;
+import br.com.libraryapi.service.LoanJournal;
+import br.com.libraryapi.service.LoanJournalProjections;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Audit history of the loans, read from the {@link LoanJournal}, and the views replayed from it.
+ */
+@RestController
+@RequestMapping("api/journal")
+@Api("Loan journal API")
+@ConditionalOnProperty(name = "application.loans.journal.enabled", havingValue = "true")
+public class JournalController {
+
+    private static final int MAX_EVENTS = 1000;
+
+    private final LoanJournal loanJournal;
+
+    private final LoanJournalProjections loanJournalProjections;
+
+    public JournalController(LoanJournal loanJournal, LoanJournalProjections loanJournalProjections) {
+        this.loanJournal = loanJournal;
+        this.loanJournalProjections = loanJournalProjections;
+    }
+
+    @GetMapping("events")
+    @ApiOperation("Obtains the loan events recorded after the given sequence, in order")
+    public List<LoanEvent> events(@RequestParam(value = "after", defaultValue = "0") long after,
+                                  @RequestParam(value = "size", defaultValue = "100") int size) {
+        return loanJournal.read(after, Math.min(size, MAX_EVENTS));
+    }
+
+    @GetMapping("books/{id}/open-loans")
+    @ApiOperation("Obtains the number of open loans of a book, replayed from the journal")
+    public int openLoans(@PathVariable Integer id) {
+        return loanJournalProjections.openLoans(id);
+    }
+
+    @GetMapping("customers/{id}/history")
+    @ApiOperation("Obtains the latest event of the most recent loans of a customer, replayed from the journal")
+    public List<LoanEvent> history(@PathVariable Integer id) {
+        return loanJournalProjections.history(id);
+    }
+
+    @PostMapping("projections/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @ApiOperation("Rebuilds the views from the first event of the journal")
+    public void rebuild() {
+        loanJournalProjections.rebuild();
+    }
+}
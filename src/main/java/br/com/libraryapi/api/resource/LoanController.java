@@ -1,16 +1,26 @@
 package br.com.libraryapi.api.resource;
 
 import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.api.dto.LoanBatchItemDTO;
 import br.com.libraryapi.api.dto.LoanDTO;
 import br.com.libraryapi.api.dto.LoanFilterDTO;
 import br.com.libraryapi.api.dto.ReturnedLoanDTO;
+import br.com.libraryapi.api.dto.SliceDTO;
+import br.com.libraryapi.api.mapper.LoanMapper;
+import br.com.libraryapi.config.BusinessMetrics;
 import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Customer;
 import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanCheckout;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
 import br.com.libraryapi.service.BookService;
+import br.com.libraryapi.service.CustomerService;
 import br.com.libraryapi.service.LoanService;
+import br.com.libraryapi.service.LoanWriteBatcher;
 import io.swagger.annotations.Api;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.ApiOperation;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -18,18 +28,35 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.ui.ModelMap;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.Size;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("api/loans")
 @Api("Loan API")
+@Validated
 public class LoanController {
 
+    public static final int MAX_BATCH_SIZE = 500;
+
     @Autowired
     private BookService bookService;
 
@@ -37,7 +64,20 @@ public class LoanController {
     private LoanService loanService;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private CustomerService customerService;
+
+    @Autowired
+    private LoanMapper loanMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // only present when group commit is enabled
+    @Autowired(required = false)
+    private LoanWriteBatcher loanWriteBatcher;
+
+    @Autowired(required = false)
+    private BusinessMetrics businessMetrics;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -47,19 +87,70 @@ public class LoanController {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
         Loan entity = Loan.builder().book(book)
                                     .customer(loanDTO.getCustomer())
+                                    .customerEmail(loanDTO.getCustomerEmail())
+                                    .customerId(customerId(loanDTO))
                                     .loanDate(LocalDate.now()).build();
 
-        entity = loanService.save(entity);
+        entity = loanWriteBatcher != null ? loanWriteBatcher.save(entity) : loanService.save(entity);
 
         return entity.getId();
     }
 
+    @PostMapping("batch")
+    @ApiOperation("Create many loans at once, reporting the result of each one")
+    public List<LoanBatchItemDTO> createBatch(@RequestBody
+                                              @Size(max = MAX_BATCH_SIZE, message = "At most " + MAX_BATCH_SIZE + " loans per batch.")
+                                              List<@Valid LoanDTO> loanDTOs) {
+        Map<String, Book> books = bookService.getBooksByIsbn(loanDTOs.stream()
+                                                                     .map(LoanDTO::getIsbn)
+                                                                     .collect(Collectors.toSet()))
+                                             .stream()
+                                             .collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+
+        List<Loan> loans = new ArrayList<>();
+        for (LoanDTO loanDTO : loanDTOs) {
+            Book book = books.get(loanDTO.getIsbn());
+            if (book != null) {
+                loans.add(Loan.builder().book(book)
+                                        .customer(loanDTO.getCustomer())
+                                        .customerEmail(loanDTO.getCustomerEmail())
+                                        .loanDate(LocalDate.now()).build());
+            }
+        }
+        List<LoanCheckout> checkouts = loanService.saveAll(loans);
+
+        List<LoanBatchItemDTO> result = new ArrayList<>(loanDTOs.size());
+        int saved = 0;
+        for (LoanDTO loanDTO : loanDTOs) {
+            LoanBatchItemDTO.LoanBatchItemDTOBuilder item = LoanBatchItemDTO.builder().isbn(loanDTO.getIsbn());
+            if (!books.containsKey(loanDTO.getIsbn())) {
+                item.status(LoanBatchItemDTO.Status.BOOK_NOT_FOUND).message("Book not found for passed isbn");
+            } else {
+                LoanCheckout checkout = checkouts.get(saved++);
+                if (checkout.isAccepted()) {
+                    item.id(checkout.getLoan().getId()).status(LoanBatchItemDTO.Status.CREATED);
+                } else {
+                    item.status(LoanBatchItemDTO.Status.ALREADY_LOANED).message("Book already loaned.");
+                    if (businessMetrics != null) {
+                        businessMetrics.rejected("LoanController.createBatch", "Book already loaned.", 1);
+                    }
+                }
+            }
+            result.add(item.build());
+        }
+        return result;
+    }
+
     @PatchMapping("{id}")
     @ApiOperation("Return a loan by id")
     public void returnBook(@PathVariable Integer id, @RequestBody ReturnedLoanDTO dto) {
         Loan loan = loanService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         loan.setReturned(dto.getReturned());
-        loanService.update(loan);
+        if (loanWriteBatcher != null) {
+            loanWriteBatcher.update(loan);
+        } else {
+            loanService.update(loan);
+        }
     }
 
     @GetMapping
@@ -70,16 +161,86 @@ public class LoanController {
         List<LoanDTO> loans = result
                 .getContent()
                 .stream()
-                .map(entity -> {
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+
+        return new PageImpl<LoanDTO>(loans, pageable, result.getTotalElements());
+    }
+
+    @GetMapping(params = "after")
+    @ApiOperation("Find loans by params with cursor pagination, without total count")
+    public SliceDTO<LoanDTO> find(LoanFilterDTO filterDTO, @RequestParam("after") String after, Pageable pageable) {
+        KeysetSlice<Loan> result = loanService.find(filterDTO, Keyset.decode(after), pageable);
+
+        List<LoanDTO> loans = result
+                .getContent()
+                .stream()
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+
+        return SliceDTO.<LoanDTO>builder()
+                .content(loans)
+                .size(pageable.getPageSize())
+                .numberOfElements(loans.size())
+                .hasNext(result.isHasNext())
+                .next(result.getNext() != null ? result.getNext().encode() : null)
+                .build();
+    }
 
-                    Book book = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
+    @GetMapping("export")
+    @ApiOperation("Stream every loan matching the params as NDJSON (default) or CSV")
+    public void export(LoanFilterDTO filterDTO,
+                       @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                       HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
 
-                }).collect(Collectors.toList());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write("id,isbn,customer,customerEmail,bookId,title,author\n");
+        }
+        try {
+            loanService.export(filterDTO, loan -> {
+                try {
+                    LoanDTO dto = loanMapper.toDTO(loan);
+                    writer.write(csv ? toCsv(dto) : objectMapper.writeValueAsString(dto));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
 
-        return new PageImpl<LoanDTO>(loans, pageable, result.getTotalElements());
+    private Integer customerId(LoanDTO loanDTO) {
+        Customer customer = customerService.resolve(loanDTO.getCustomer(), loanDTO.getCustomerEmail());
+        return customer != null ? customer.getId() : null;
+    }
+
+    private String toCsv(LoanDTO dto) {
+        BookDTO book = dto.getBook();
+        return String.join(",",
+                           csvValue(dto.getId()),
+                           csvValue(dto.getIsbn()),
+                           csvValue(dto.getCustomer()),
+                           csvValue(dto.getCustomerEmail()),
+                           csvValue(book != null ? book.getId() : null),
+                           csvValue(book != null ? book.getTitle() : null),
+                           csvValue(book != null ? book.getAuthor() : null));
+    }
+
+    private String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
     }
 }
@@ -0,0 +1,58 @@
+package br.com.libraryapi.api.resource;
+
+import br.com.libraryapi.api.dto.CirculationStatsDTO;
+import br.com.libraryapi.service.CirculationStats;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Circulation counters for dashboards, answered from {@link CirculationStats} without touching the database.
+ */
+@RestController
+@RequestMapping("api/stats")
+@Api("Stats API")
+public class StatsController {
+
+    private final CirculationStats circulationStats;
+
+    public StatsController(CirculationStats circulationStats) {
+        this.circulationStats = circulationStats;
+    }
+
+    @GetMapping
+    @ApiOperation("Obtains the active, overdue and total loans")
+    public CirculationStatsDTO get() {
+        checkReady();
+        return CirculationStatsDTO.builder()
+                                  .activeLoans(circulationStats.activeLoans())
+                                  .overdueLoans(circulationStats.overdueLoans())
+                                  .totalLoans(circulationStats.totalLoans())
+                                  .reconciledAt(circulationStats.getReconciledAt())
+                                  .build();
+    }
+
+    @GetMapping("books/{id}")
+    @ApiOperation("Obtains the active and total loans of a book")
+    public CirculationStatsDTO getByBook(@PathVariable Integer id) {
+        checkReady();
+        return CirculationStatsDTO.builder()
+                                  .bookId(id)
+                                  .activeLoans(circulationStats.activeLoans(id))
+                                  .totalLoans(circulationStats.totalLoans(id))
+                                  .reconciledAt(circulationStats.getReconciledAt())
+                                  .build();
+    }
+
+    // until the counters are seeded they would report zero loans
+    private void checkReady() {
+        if (!circulationStats.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Stats not loaded yet");
+        }
+    }
+}
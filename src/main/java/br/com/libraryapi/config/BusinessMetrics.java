@@ -0,0 +1,43 @@
+package br.com.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counters of business outcomes. Web slices without a meter registry do not have this bean, so the
+ * controllers and their advice take it as optional.
+ */
+@Component
+public class BusinessMetrics {
+
+    public static final String REJECTIONS = "library.business.rejections";
+
+    public static final String NOT_FOUND = "library.api.not-found";
+
+    private final MeterRegistry meterRegistry;
+
+    public BusinessMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void rejected(String operation, String reason, long count) {
+        if (count > 0) {
+            meterRegistry.counter(REJECTIONS, "operation", operation, "reason", reason(reason)).increment(count);
+        }
+    }
+
+    public void notFound(String operation) {
+        meterRegistry.counter(NOT_FOUND, "operation", operation).increment();
+    }
+
+    /**
+     * Keeps the tag bounded: messages carrying a detail after a colon are counted by their fixed part.
+     */
+    private static String reason(String message) {
+        if (message == null) {
+            return "unknown";
+        }
+        int detail = message.indexOf(':');
+        return detail < 0 ? message : message.substring(0, detail);
+    }
+}
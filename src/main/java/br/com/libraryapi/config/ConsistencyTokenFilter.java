@@ -0,0 +1,101 @@
+package br.com.libraryapi.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Set;
+
+/**
+ * Read your writes on top of replica routing. Responses to writes carry a {@value #HEADER} header; a client that
+ * sends it back gets its reads from the primary until the replica has caught up with that token.
+ *
+ * The token is taken when the response starts, after the service call has committed, and before the body is
+ * written so the header can still be set.
+ */
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Consistency-Token";
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReplicaHeartbeat heartbeat;
+
+    public ConsistencyTokenFilter(ReplicaHeartbeat heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (READ_METHODS.contains(request.getMethod())) {
+            boolean primary = mustReadPrimary(request.getHeader(HEADER));
+            if (primary) {
+                ReplicaRoutingDataSource.requirePrimary();
+            }
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                if (primary) {
+                    ReplicaRoutingDataSource.clearPrimaryRequired();
+                }
+            }
+            return;
+        }
+
+        TokenResponse tokenResponse = new TokenResponse(response);
+        chain.doFilter(request, tokenResponse);
+        tokenResponse.addToken();
+    }
+
+    private boolean mustReadPrimary(String token) {
+        if (token == null) {
+            return false;
+        }
+        try {
+            return !heartbeat.isCaughtUp(Long.parseLong(token.trim()));
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private class TokenResponse extends HttpServletResponseWrapper {
+
+        private boolean tokenAdded;
+
+        TokenResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        void addToken() {
+            if (!tokenAdded && !isCommitted()) {
+                tokenAdded = true;
+                setHeader(HEADER, String.valueOf(heartbeat.token()));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addToken();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addToken();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addToken();
+            super.flushBuffer();
+        }
+    }
+}
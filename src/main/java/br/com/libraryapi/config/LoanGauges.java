@@ -0,0 +1,25 @@
+package br.com.libraryapi.config;
+
+import br.com.libraryapi.service.CirculationStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Active and overdue loan gauges, read from the in-memory {@link CirculationStats}, so scraping never runs
+ * queries against the loan table.
+ */
+@Component
+public class LoanGauges {
+
+    public LoanGauges(CirculationStats circulationStats, MeterRegistry meterRegistry) {
+        Gauge.builder("library.loans", circulationStats, CirculationStats::activeLoans)
+             .tag("state", "active")
+             .description("Loans not returned yet")
+             .register(meterRegistry);
+        Gauge.builder("library.loans", circulationStats, CirculationStats::overdueLoans)
+             .tag("state", "overdue")
+             .description("Loans not returned after the loan period")
+             .register(meterRegistry);
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.libraryapi.config;
+
+import br.com.libraryapi.exception.BussinessException;
+import br.com.libraryapi.repository.BookRepository;
+import br.com.libraryapi.repository.LoanRepository;
+import br.com.libraryapi.service.BookService;
+import br.com.libraryapi.service.LoanService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@link BookService}/{@link LoanService} method and every {@link BookRepository}/
+ * {@link LoanRepository} query, tagged by operation and outcome, with percentile histograms so latency
+ * quantiles can be aggregated across instances. Business exceptions raised by the services are also counted.
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+
+    public static final String SERVICE_TIMER = "library.service";
+
+    public static final String REPOSITORY_TIMER = "library.repository";
+
+    private final MeterRegistry meterRegistry;
+
+    private final BusinessMetrics businessMetrics;
+
+    public MetricsAspect(MeterRegistry meterRegistry, BusinessMetrics businessMetrics) {
+        this.meterRegistry = meterRegistry;
+        this.businessMetrics = businessMetrics;
+    }
+
+    @Around("execution(public * br.com.libraryapi.service.BookService+.*(..))"
+            + " || execution(public * br.com.libraryapi.service.LoanService+.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = (joinPoint.getThis() instanceof BookService ? "BookService." : "LoanService.")
+                + joinPoint.getSignature().getName();
+        try {
+            return time(SERVICE_TIMER, operation, joinPoint);
+        } catch (BussinessException e) {
+            businessMetrics.rejected(operation, e.getMessage(), 1);
+            throw e;
+        }
+    }
+
+    @Around("execution(* br.com.libraryapi.repository.BookRepository+.*(..))"
+            + " || execution(* br.com.libraryapi.repository.LoanRepository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = (joinPoint.getThis() instanceof BookRepository ? "BookRepository." : "LoanRepository.")
+                + joinPoint.getSignature().getName();
+        return time(REPOSITORY_TIMER, operation, joinPoint);
+    }
+
+    private Object time(String name, String operation, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            Timer.builder(name)
+                 .tag("operation", operation)
+                 .tag("outcome", "none".equals(exception) ? "success" : "error")
+                 .tag("exception", exception)
+                 .publishPercentileHistogram()
+                 .register(meterRegistry)
+                 .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
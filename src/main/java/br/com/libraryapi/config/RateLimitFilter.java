@@ -0,0 +1,202 @@
+package br.com.libraryapi.config;
+
+import br.com.libraryapi.api.exception.ApiErrors;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control of the API: every client has a token bucket per limit (see {@link RateLimitProperties}),
+ * and a request finding it empty gets a 429 with a {@code Retry-After} instead of reaching the controllers.
+ *
+ * A bucket is a single {@link AtomicLong} holding the time at which it will be full again (the generic cell
+ * rate algorithm), so taking a token is one compare-and-set and refilling costs nothing. Buckets live in a
+ * {@link ConcurrentHashMap}, whose reads take no lock and whose writes lock a single bin; requests of
+ * different clients therefore never wait on each other. Buckets that are full again are equivalent to new ones
+ * and are dropped by {@link #evictIdle()}.
+ *
+ * Clients are identified by {@link RateLimitProperties#getClientHeader()} when its value is one of the
+ * {@link RateLimitProperties#getClientKeys()}, or else by remote address, which is the one of the proxy unless
+ * {@code server.forward-headers-strategy} is set. An unknown key is not trusted: each one would otherwise get a
+ * new full bucket and fill the shared overflow bucket.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String METRIC = "library.api.admission";
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    private final Rule defaultRule;
+
+    private final String clientHeader;
+
+    private final Set<String> clientKeys;
+
+    private final int maxClients;
+
+    private final ObjectMapper objectMapper;
+
+    private final LongSupplier clock;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this(properties, objectMapper, meterRegistry, System::nanoTime);
+    }
+
+    RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                    LongSupplier clock) {
+        this.clientHeader = properties.getClientHeader();
+        this.clientKeys = new HashSet<>(properties.getClientKeys());
+        this.maxClients = properties.getMaxClients();
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        for (RateLimitProperties.Limit limit : properties.getEndpoints()) {
+            rules.add(new Rule(limit, meterRegistry));
+        }
+        this.defaultRule = new Rule(properties.getDefaultLimit(), meterRegistry);
+        Gauge.builder(METRIC + ".clients", this, RateLimitFilter::clients)
+             .description("Clients with a bucket in use")
+             .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Rule rule = ruleOf(request);
+        long waitNanos = rule.acquire(clientOf(request), clock.getAsLong());
+        if (waitNanos > 0) {
+            rule.rejected.increment();
+            reject(response, waitNanos);
+            return;
+        }
+        rule.admitted.increment();
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Drops the buckets that are full again; a client coming back gets a new, equally full one.
+     */
+    @Scheduled(fixedDelayString = "${application.rate-limit.evict-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        defaultRule.evictIdle(now);
+        rules.forEach(rule -> rule.evictIdle(now));
+    }
+
+    private long clients() {
+        return rules.stream().mapToLong(rule -> rule.buckets.size()).sum() + defaultRule.buckets.size();
+    }
+
+    private Rule ruleOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Rule rule : rules) {
+            if ((rule.method == null || rule.method.equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(rule.path, path)) {
+                return rule;
+            }
+        }
+        return defaultRule;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String key = request.getHeader(clientHeader);
+        return key != null && clientKeys.contains(key) ? "key:" + key : "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ApiErrors errors = new ApiErrors(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many requests."));
+        objectMapper.writeValue(response.getOutputStream(), errors);
+    }
+
+    private final class Rule {
+
+        private final String method;
+
+        private final String path;
+
+        // time to earn one token, and the time a full bucket is ahead of an empty one
+        private final long intervalNanos;
+
+        private final long burstNanos;
+
+        // client buckets, holding the time they are full again
+        private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        // shared by the clients beyond maxClients
+        private final AtomicLong overflow;
+
+        private final Counter admitted;
+
+        private final Counter rejected;
+
+        Rule(RateLimitProperties.Limit limit, MeterRegistry meterRegistry) {
+            this.method = limit.getMethod();
+            this.path = limit.getPath();
+            this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / limit.getPermitsPerSecond()));
+            this.burstNanos = intervalNanos * Math.max(1, limit.getBurst());
+            this.overflow = new AtomicLong(clock.getAsLong());
+            String endpoint = (method != null ? method.toUpperCase() + " " : "") + path;
+            this.admitted = meterRegistry.counter(METRIC, "endpoint", endpoint, "outcome", "admitted");
+            this.rejected = meterRegistry.counter(METRIC, "endpoint", endpoint, "outcome", "rejected");
+        }
+
+        /**
+         * Takes a token from the bucket of the client.
+         *
+         * @return 0 when taken, otherwise the nanoseconds until the bucket has one.
+         */
+        long acquire(String client, long now) {
+            AtomicLong bucket = buckets.get(client);
+            if (bucket == null) {
+                bucket = buckets.size() < maxClients
+                         ? buckets.computeIfAbsent(client, key -> new AtomicLong(now))
+                         : overflow;
+            }
+            while (true) {
+                long fullAt = bucket.get();
+                // nanoTime values are only compared by their difference
+                long next = (fullAt - now > 0 ? fullAt : now) + intervalNanos;
+                long wait = next - burstNanos - now;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(fullAt, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        void evictIdle(long now) {
+            // a token taken from a bucket while it is being dropped is forgiven
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package br.com.libraryapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Limits of {@link RateLimitFilter}, under {@code application.rate-limit}. A request gets the first endpoint
+ * limit matching its method and path, or the default limit.
+ */
+@Data
+@ConfigurationProperties("application.rate-limit")
+public class RateLimitProperties {
+
+    // header identifying the client; requests without it are limited by remote address
+    private String clientHeader = "X-API-Key";
+
+    // values of the client header that get a bucket of their own; requests with any other value are limited by
+    // remote address, so made up keys cannot claim fresh buckets
+    private Set<String> clientKeys = new HashSet<>();
+
+    // clients tracked per limit, the ones beyond it share a single bucket
+    private int maxClients = 100000;
+
+    private Limit defaultLimit = new Limit();
+
+    private List<Limit> endpoints = new ArrayList<>();
+
+    @Data
+    public static class Limit {
+
+        // any method when not set
+        private String method;
+
+        // Ant style pattern of the request path, e.g. /api/books/**
+        private String path = "/**";
+
+        private double permitsPerSecond = 50;
+
+        // requests a client may send at once after being idle
+        private int burst = 100;
+    }
+}
@@ -0,0 +1,82 @@
+package br.com.libraryapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Read replica support, enabled by setting {@code application.datasource.replica.url}. The primary is still
+ * configured through {@code spring.datasource.*} and is the only one Flyway migrates; replication is expected
+ * to bring the schema and the data to the replica.
+ */
+@Configuration
+@Slf4j
+@ConditionalOnProperty(name = "application.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("application.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${application.datasource.replica.url}") String url,
+                                              @Value("${application.datasource.replica.username:sa}") String username,
+                                              @Value("${application.datasource.replica.password:}") String password) {
+        log.info("Routing read only service transactions to the replica {}", url);
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                                                       .type(HikariDataSource.class)
+                                                       .url(url)
+                                                       .username(username)
+                                                       .password(password)
+                                                       .build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaHeartbeat replicaHeartbeat(@Qualifier("primaryDataSource") DataSource primary,
+                                             @Qualifier("replicaDataSource") DataSource replica,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${application.datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+        return new ReplicaHeartbeat(primary, replica, meterRegistry, maxLagMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaHeartbeat heartbeat) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(heartbeat);
+        routing.setTargetDataSources(Map.of(ReplicaRoutingDataSource.Target.PRIMARY, primary,
+                                            ReplicaRoutingDataSource.Target.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConsistencyTokenFilter> consistencyTokenFilter(ReplicaHeartbeat heartbeat) {
+        return new FilterRegistrationBean<>(new ConsistencyTokenFilter(heartbeat));
+    }
+}
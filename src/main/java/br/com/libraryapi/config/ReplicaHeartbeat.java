@@ -0,0 +1,82 @@
+package br.com.libraryapi.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Measures how far the replica is behind. Every beat writes the current time to {@code replication_heartbeat}
+ * on the primary and reads the value the replica has received so far. Replication applies changes in commit
+ * order, so once the replica holds a beat written at or after a token, it also holds every write committed
+ * before that token was issued.
+ *
+ * Tokens are wall clock milliseconds, so the clocks of the nodes are assumed to be close.
+ */
+@Slf4j
+public class ReplicaHeartbeat {
+
+    private final JdbcTemplate primary;
+
+    private final JdbcTemplate replica;
+
+    private final long maxLagMillis;
+
+    private volatile long replicaBeat = -1;
+
+    public ReplicaHeartbeat(DataSource primary, DataSource replica, MeterRegistry meterRegistry, long maxLagMillis) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMillis = maxLagMillis;
+        Gauge.builder("library.datasource.replica.lag", this, ReplicaHeartbeat::lagMillis)
+             .description("Milliseconds the replica is behind the primary, -1 when unreachable")
+             .baseUnit("milliseconds")
+             .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.datasource.replica.heartbeat-ms:250}")
+    public void beat() {
+        try {
+            primary.update("update replication_heartbeat set beat = ? where id = 1", System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            log.warn("Could not write the replication heartbeat: {}", e.getMessage());
+        }
+        try {
+            Long beat = replica.queryForObject("select beat from replication_heartbeat where id = 1", Long.class);
+            replicaBeat = beat != null ? beat : -1;
+        } catch (DataAccessException e) {
+            if (replicaBeat >= 0) {
+                log.warn("Replica unreachable, reading from the primary: {}", e.getMessage());
+            }
+            replicaBeat = -1;
+        }
+    }
+
+    /**
+     * @return a token for a write that just committed.
+     */
+    public long token() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return whether the replica already holds every write committed before the token was issued.
+     */
+    public boolean isCaughtUp(long token) {
+        return replicaBeat >= token;
+    }
+
+    public boolean isReplicaUsable() {
+        long lag = lagMillis();
+        return lag >= 0 && lag <= maxLagMillis;
+    }
+
+    public long lagMillis() {
+        long beat = replicaBeat;
+        return beat < 0 ? -1 : Math.max(0, System.currentTimeMillis() - beat);
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.libraryapi.config;
+
+import br.com.libraryapi.service.BookService;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Sends read only transactions started by a service method to the replica and everything else to the primary.
+ * Transactions opened by the repositories themselves, e.g. the existence checks before a write, stay on the
+ * primary.
+ *
+ * The decision is taken when the first statement needs a connection, so it must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: by then the transaction is known
+ * to be read only. The replica is skipped while it is behind {@code max-lag-ms} or unreachable, and for
+ * requests that must read their own writes (see {@link ConsistencyTokenFilter}).
+ *
+ * That last flag belongs to the request thread. Code handing reads over to other threads captures it with
+ * {@link #isPrimaryRequired()} on the request thread and runs them through {@link #call(boolean, Callable)}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private static final String SERVICE_PACKAGE = BookService.class.getPackage().getName() + ".";
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private final ReplicaHeartbeat heartbeat;
+
+    public ReplicaRoutingDataSource(ReplicaHeartbeat heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Makes every read of the current thread go to the primary until {@link #clearPrimaryRequired()}.
+     */
+    public static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    public static void clearPrimaryRequired() {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+
+    /**
+     * Runs the call on the current thread, reading from the primary when {@code primaryRequired}.
+     */
+    public static <T> T call(boolean primaryRequired, Callable<T> call) throws Exception {
+        if (!primaryRequired || isPrimaryRequired()) {
+            return call.call();
+        }
+        requirePrimary();
+        try {
+            return call.call();
+        } finally {
+            clearPrimaryRequired();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return current();
+    }
+
+    Target current() {
+        String transaction = TransactionSynchronizationManager.getCurrentTransactionName();
+        boolean serviceRead = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && transaction != null
+                && transaction.startsWith(SERVICE_PACKAGE);
+        if (serviceRead && !isPrimaryRequired() && heartbeat.isReplicaUsable()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+}
@@ -0,0 +1,38 @@
+package br.com.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Runs Tomcat request handling and {@code @Scheduled} jobs on virtual threads, so requests blocked on JDBC or
+ * SMTP no longer hold one of a few hundred platform threads. Concurrency against the database stays bounded by
+ * the connection pool ({@code spring.datasource.hikari.maximum-pool-size}), not by the thread count.
+ */
+@Configuration
+@Slf4j
+@ConditionalOnProperty(name = "application.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("Handling requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.perTaskExecutor("http-virtual-"));
+    }
+
+    /**
+     * Replaces the auto-configured scheduler. Jobs run on virtual threads; the pool size only limits how many
+     * jobs are in flight at once, as before.
+     */
+    @Bean
+    public TaskScheduler taskScheduler(@Value("${spring.task.scheduling.pool.size:1}") int poolSize) {
+        return new ConcurrentTaskScheduler(Executors.newScheduledThreadPool(poolSize, VirtualThreads.factory("scheduling-virtual-")));
+    }
+}
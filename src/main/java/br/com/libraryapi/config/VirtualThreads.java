@@ -0,0 +1,51 @@
+package br.com.libraryapi.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (JDK 21+) while the code base still compiles for Java 11. Everything goes through
+ * reflection once, at startup; asking for virtual threads on an older JDK fails fast.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return a factory of virtual threads named {@code prefix0}, {@code prefix1}...
+     */
+    public static ThreadFactory factory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or newer, running on " + System.getProperty("java.version"), e);
+        }
+    }
+
+    /**
+     * @return an executor starting one virtual thread per task.
+     */
+    public static ExecutorService perTaskExecutor(String prefix) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory(prefix));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or newer, running on " + System.getProperty("java.version"), e);
+        }
+    }
+}
@@ -9,7 +9,7 @@ import javax.persistence.*;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
@@ -17,7 +17,8 @@ import java.util.List;
 public class Book {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Integer id;
 
     @Column
@@ -29,6 +30,27 @@ public class Book {
     @Column
     private String isbn;
 
+    @Column(nullable = false)
+    private Integer copies;
+
+    // only changed through the conditional updates of BookRepository, never by merging the entity
+    @Column(name = "available_copies", nullable = false, updatable = false)
+    private Integer availableCopies;
+
+    // bumped on every update, exposed as the ETag of the book
+    @Version
+    private Integer version;
+
     @OneToMany(mappedBy = "book", fetch = FetchType.LAZY)
     private List<Loan> loans;
+
+    @PrePersist
+    void prePersist() {
+        if (copies == null) {
+            copies = 1;
+        }
+        if (availableCopies == null) {
+            availableCopies = copies;
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package br.com.libraryapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * A borrower, identified by email when there is one and by name otherwise. Loans keep the name and email
+ * they were made with, and reference the customer by id.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table
+public class Customer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_seq", allocationSize = 50)
+    private Integer id;
+
+    @Column(length = 100)
+    private String name;
+
+    @Column
+    private String email;
+}
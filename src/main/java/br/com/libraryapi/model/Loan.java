@@ -16,7 +16,8 @@ import java.time.LocalDate;
 public class Loan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
     @Column
     private Integer id;
 
@@ -26,6 +27,9 @@ public class Loan {
     @Column(name = "customer_email")
     private String customerEmail;
 
+    @Column(name = "id_customer")
+    private Integer customerId;
+
     @JoinColumn(name = "id_book")
     @ManyToOne
     private Book book;
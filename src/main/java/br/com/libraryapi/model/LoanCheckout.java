@@ -0,0 +1,17 @@
+package br.com.libraryapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one loan of a batch checkout: the loan, and whether a copy of its book was taken for it. Refused
+ * loans are not saved.
+ */
+@Getter
+@AllArgsConstructor
+public class LoanCheckout {
+
+    private final Loan loan;
+
+    private final boolean accepted;
+}
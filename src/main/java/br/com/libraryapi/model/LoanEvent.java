@@ -0,0 +1,38 @@
+package br.com.libraryapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * One checkout, return or reopening of a loan, as recorded in the loan journal.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanEvent {
+
+    public enum Type {
+        CHECKOUT, RETURN, REOPEN
+    }
+
+    // position in the journal, increasing by one for every event recorded
+    private long seq;
+
+    private Instant recordedAt;
+
+    private Type type;
+
+    private Integer loanId;
+
+    private Integer bookId;
+
+    private Integer customerId;
+
+    private LocalDate loanDate;
+}
@@ -1,15 +1,64 @@
 package br.com.libraryapi.repository;
 
 import br.com.libraryapi.model.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Integer> {
+public interface BookRepository extends JpaRepository<Book, Integer>, BookRepositoryCustom {
 
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
+
+    @Query("select b.id from Book b where b.isbn = :isbn")
+    Optional<Integer> findIdByIsbn(@Param("isbn") String isbn);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    Set<String> findIsbnsIn(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * @return id and isbn of the books after the given id, ordered by id.
+     */
+    @Query("select b.id, b.isbn from Book b where b.id > :afterId order by b.id")
+    List<Object[]> findIsbnsAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Takes one copy of the book, if there is any left.
+     *
+     * @return 1 when a copy was taken, 0 when every copy is loaned.
+     */
+    @Modifying
+    @Query("update Book b set b.availableCopies = b.availableCopies - 1 where b.id = :id and b.availableCopies > 0")
+    int checkoutCopy(@Param("id") Integer id);
+
+    /**
+     * Takes {@code count} copies of the book at once, only if that many are left.
+     *
+     * @return 1 when the copies were taken, 0 when fewer are available.
+     */
+    @Modifying
+    @Query("update Book b set b.availableCopies = b.availableCopies - :count where b.id = :id and b.availableCopies >= :count")
+    int checkoutCopies(@Param("id") Integer id, @Param("count") int count);
+
+    /**
+     * @return 1 when the copy was put back, 0 when every copy was already available.
+     */
+    @Modifying
+    @Query("update Book b set b.availableCopies = b.availableCopies + 1 where b.id = :id and b.availableCopies < b.copies")
+    int returnCopy(@Param("id") Integer id);
+
+    @Query("select b.availableCopies from Book b where b.id = :id")
+    Integer findAvailableCopies(@Param("id") Integer id);
 }
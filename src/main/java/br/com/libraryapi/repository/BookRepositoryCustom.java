@@ -0,0 +1,10 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+
+public interface BookRepositoryCustom {
+
+    KeysetSlice<Book> findSlice(Example<Book> example, Keyset after, Sort sort, int size);
+}
@@ -0,0 +1,25 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Set;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    private static final Set<String> SORTABLE = Set.of("id", "title", "author", "isbn");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public KeysetSlice<Book> findSlice(Example<Book> example, Keyset after, Sort sort, int size) {
+        return KeysetQuery.find(entityManager, Book.class,
+                (root, query, cb) -> QueryByExamplePredicateBuilder.getPredicate(root, cb, example),
+                SORTABLE, after, sort, size);
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.Customer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CustomerRepository extends JpaRepository<Customer, Integer> {
+
+    Optional<Customer> findByEmail(String email);
+
+    Optional<Customer> findFirstByNameAndEmailIsNullOrderById(String name);
+
+    List<Customer> findByEmailIn(Collection<String> emails);
+
+    List<Customer> findByNameInAndEmailIsNullOrderById(Collection<String> names);
+}
@@ -0,0 +1,58 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.exception.BussinessException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row returned by a keyset (seek) query: the sort property, its direction, the
+ * value of that property (null when the row has none) and the id used as tie breaker. Serialized as an
+ * opaque URL safe token.
+ */
+@Getter
+@AllArgsConstructor
+public class Keyset {
+
+    private static final String SEPARATOR = "\n";
+
+    // leads the value in the token, which is empty for a null value
+    private static final String VALUE = "=";
+
+    private final String property;
+    private final Sort.Direction direction;
+    private final String value;
+    private final Integer id;
+
+    public String encode() {
+        String raw = property + SEPARATOR + direction + SEPARATOR + id + SEPARATOR + (value == null ? "" : VALUE + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded position, or null for an empty token (first page).
+     */
+    public static Keyset decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            String value;
+            if (parts[3].isEmpty()) {
+                value = null;
+            } else if (parts[3].startsWith(VALUE)) {
+                value = parts[3].substring(VALUE.length());
+            } else {
+                throw new IllegalArgumentException("Value without marker.");
+            }
+            return new Keyset(parts[0], Sort.Direction.valueOf(parts[1]), value, Integer.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new BussinessException("Invalid cursor.");
+        }
+    }
+}
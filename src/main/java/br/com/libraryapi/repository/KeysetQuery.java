@@ -0,0 +1,172 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.exception.BussinessException;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs seek queries: {@code where <filter> and (key, id) > (:key, :id) order by key, id limit size + 1}.
+ * The extra row only tells whether there is a next slice, so no count query is needed.
+ *
+ * Rows with a null key are listed first when ascending and last when descending, ordered by id. They are read
+ * by a query of their own ({@code key is null}), next to the one for the other rows ({@code key is not null}),
+ * so the order does not depend on where the database sorts nulls; a slice crossing from one group to the
+ * other takes one query of each.
+ */
+final class KeysetQuery {
+
+    private static final String ID = "id";
+
+    private KeysetQuery() {
+    }
+
+    static <T> KeysetSlice<T> find(EntityManager entityManager, Class<T> type, Specification<T> filter,
+                                   Set<String> sortableProperties, Keyset after, Sort sort, int size) {
+        Sort.Order order = sortOrder(sort);
+        if (!sortableProperties.contains(order.getProperty())) {
+            throw new BussinessException("Invalid sort property for cursor pagination: " + order.getProperty());
+        }
+        if (after != null && (!after.getProperty().equals(order.getProperty())
+                || after.getDirection() != order.getDirection())) {
+            throw new BussinessException("Cursor does not match the requested sort.");
+        }
+
+        List<T> rows = new ArrayList<>(size + 1);
+        if (ID.equals(order.getProperty())) {
+            rows.addAll(values(entityManager, type, filter, order, after, size + 1));
+        } else {
+            boolean afterNull = after != null && after.getValue() == null;
+            if (order.isAscending()) {
+                if (after == null || afterNull) {
+                    rows.addAll(nulls(entityManager, type, filter, order, after, size + 1));
+                }
+                if (rows.size() <= size) {
+                    rows.addAll(values(entityManager, type, filter, order, afterNull ? null : after, size + 1 - rows.size()));
+                }
+            } else {
+                if (!afterNull) {
+                    rows.addAll(values(entityManager, type, filter, order, after, size + 1));
+                }
+                if (rows.size() <= size) {
+                    rows.addAll(nulls(entityManager, type, filter, order, afterNull ? after : null, size + 1 - rows.size()));
+                }
+            }
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        Keyset next = hasNext ? keysetOf(content.get(content.size() - 1), order) : null;
+        return new KeysetSlice<>(content, hasNext, next);
+    }
+
+    /**
+     * Rows with a key, ordered by key and id. The id is never null, so for it these are all the rows.
+     */
+    private static <T> List<T> values(EntityManager entityManager, Class<T> type, Specification<T> filter,
+                                      Sort.Order order, Keyset after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+
+        Path<?> key = root.get(order.getProperty());
+        Path<?> id = root.get(ID);
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(filter.toPredicate(root, query, cb));
+        if (!ID.equals(order.getProperty())) {
+            predicates.add(cb.isNotNull(key));
+        }
+        if (after != null) {
+            predicates.add(seek(cb, root, order, after));
+        }
+        query.select(root)
+             .where(predicates.toArray(new Predicate[0]))
+             .orderBy(order.isAscending()
+                     ? List.of(cb.asc(key), cb.asc(id))
+                     : List.of(cb.desc(key), cb.desc(id)));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Rows without a key, ordered by id, after the id of a cursor that is among them.
+     */
+    private static <T> List<T> nulls(EntityManager entityManager, Class<T> type, Specification<T> filter,
+                                     Sort.Order order, Keyset after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+
+        Path<Integer> id = root.get(ID);
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(filter.toPredicate(root, query, cb));
+        predicates.add(cb.isNull(root.get(order.getProperty())));
+        if (after != null) {
+            predicates.add(order.isAscending() ? cb.greaterThan(id, after.getId()) : cb.lessThan(id, after.getId()));
+        }
+        query.select(root)
+             .where(predicates.toArray(new Predicate[0]))
+             .orderBy(order.isAscending() ? cb.asc(id) : cb.desc(id));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static Sort.Order sortOrder(Sort sort) {
+        if (sort == null || sort.isUnsorted()) {
+            return Sort.Order.asc(ID);
+        }
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() > 1) {
+            throw new BussinessException("Cursor pagination supports a single sort property.");
+        }
+        return orders.get(0);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Predicate seek(CriteriaBuilder cb, Root<T> root, Sort.Order order, Keyset after) {
+        Path<Comparable> key = root.get(order.getProperty());
+        Path<Integer> id = root.get(ID);
+        Comparable value = convert(after.getValue(), key.getJavaType());
+
+        // the redundant key >= value bound lets the database range scan an index on the key, which it
+        // cannot do from the disjunction alone
+        if (order.isAscending()) {
+            return cb.and(cb.greaterThanOrEqualTo(key, value),
+                          cb.or(cb.greaterThan(key, value),
+                                cb.and(cb.equal(key, value), cb.greaterThan(id, after.getId()))));
+        }
+        return cb.and(cb.lessThanOrEqualTo(key, value),
+                      cb.or(cb.lessThan(key, value),
+                            cb.and(cb.equal(key, value), cb.lessThan(id, after.getId()))));
+    }
+
+    private static Comparable<?> convert(String value, Class<?> type) {
+        try {
+            if (Integer.class.equals(type)) {
+                return Integer.valueOf(value);
+            }
+            if (LocalDate.class.equals(type)) {
+                return LocalDate.parse(value);
+            }
+            return value;
+        } catch (RuntimeException e) {
+            throw new BussinessException("Invalid cursor.");
+        }
+    }
+
+    private static Keyset keysetOf(Object entity, Sort.Order order) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(entity);
+        Object value = wrapper.getPropertyValue(order.getProperty());
+        Integer id = (Integer) wrapper.getPropertyValue(ID);
+        return new Keyset(order.getProperty(), order.getDirection(), value == null ? null : String.valueOf(value), id);
+    }
+}
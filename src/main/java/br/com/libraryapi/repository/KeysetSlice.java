@@ -0,0 +1,18 @@
+package br.com.libraryapi.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a keyset query. There is no total count; {@link #getNext()} is the position to continue from.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final boolean hasNext;
+    private final Keyset next;
+}
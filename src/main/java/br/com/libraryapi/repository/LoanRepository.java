@@ -4,26 +4,71 @@ import br.com.libraryapi.model.Book;
 import br.com.libraryapi.model.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface LoanRepository extends JpaRepository<Loan, Integer> {
+public interface LoanRepository extends JpaRepository<Loan, Integer>, JpaSpecificationExecutor<Loan>, LoanRepositoryCustom {
 
     @Query(value = " select case when ( count(l.id) > 0 ) then true else false end " +
                     " from Loan l where l.book = :book and ( l.returned is null or l.returned is false) ")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
-    @Query(value = "select l from Loan as l join l.book as b where b.isbn =:isbn or l.customer=:customer")
-    Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer, Pageable pageable);
+    /**
+     * @return 1 when the loan was open and is now returned, 0 when it was already returned.
+     */
+    @Modifying
+    @Query("update Loan l set l.returned = true where l.id = :id and ( l.returned is null or l.returned = false )")
+    int markReturned(@Param("id") Integer id);
 
+    /**
+     * @return 1 when the loan was returned and is open again, 0 when it was already open.
+     */
+    @Modifying
+    @Query("update Loan l set l.returned = false where l.id = :id and l.returned = true")
+    int markNotReturned(@Param("id") Integer id);
+
+    @Override
+    @EntityGraph(attributePaths = "book")
+    Page<Loan> findAll(Specification<Loan> filter, Pageable pageable);
+
+    @EntityGraph(attributePaths = "book")
+    Page<Loan> findByCustomerIdOrderByLoanDateDescIdDesc(Integer customerId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "book")
     Page<Loan> findByBook(Book book, Pageable pageable);
 
-    @Query("select l from Loan l where l.loanDate <= :threeDaysAgo and ( l.returned is null or l.returned is false)")
+    @Query("select l from Loan l join fetch l.book where l.loanDate <= :threeDaysAgo and ( l.returned is null or l.returned is false)")
     List<Loan> findByLoanDateLessThanAnNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+
+    // seed of CirculationStats: loans per book, and open loans per book and loan date
+    @Query("select l.book.id, count(l) from Loan l group by l.book.id")
+    List<Object[]> countByBook();
+
+    @Query("select l.book.id, l.loanDate, count(l) from Loan l where l.returned is null or l.returned = false " +
+            " group by l.book.id, l.loanDate")
+    List<Object[]> countOpenByBookAndLoanDate();
+
+    // loans of the given ids with their returned flag, as seen by the current transaction
+    @Query("select l.id, l.returned from Loan l where l.id in :ids")
+    List<Object[]> findReturnedByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("select l from Loan l join fetch l.book where l.loanDate <= :threeDaysAgo and ( l.returned is null or l.returned is false) " +
+            " and l.customerEmail is not null " +
+            " and ( l.customerEmail > :customerEmail or ( l.customerEmail = :customerEmail and l.id > :id ) ) " +
+            " order by l.customerEmail, l.id")
+    List<Loan> findLateLoansAfter(@Param("threeDaysAgo") LocalDate threeDaysAgo,
+                                  @Param("customerEmail") String customerEmail,
+                                  @Param("id") Integer id,
+                                  Pageable pageable);
 }
@@ -0,0 +1,15 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.Loan;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.stream.Stream;
+
+public interface LoanRepositoryCustom {
+
+    KeysetSlice<Loan> findSlice(Specification<Loan> filter, Keyset after, Sort sort, int size);
+
+    // loans with their books in id order, read only and fetched in blocks; the stream must be closed
+    Stream<Loan> stream(Specification<Loan> filter);
+}
@@ -0,0 +1,46 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.Loan;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class LoanRepositoryCustomImpl implements LoanRepositoryCustom {
+
+    private static final Set<String> SORTABLE = Set.of("id", "loanDate");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public KeysetSlice<Loan> findSlice(Specification<Loan> filter, Keyset after, Sort sort, int size) {
+        return KeysetQuery.find(entityManager, Loan.class, (root, query, cb) -> {
+            root.fetch("book", JoinType.INNER);
+            return filter.toPredicate(root, query, cb);
+        }, SORTABLE, after, sort, size);
+    }
+
+    @Override
+    public Stream<Loan> stream(Specification<Loan> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Loan> query = cb.createQuery(Loan.class);
+        Root<Loan> root = query.from(Loan.class);
+        root.fetch("book", JoinType.INNER);
+        query.select(root)
+             .where(filter.toPredicate(root, query, cb))
+             .orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                            .setHint(QueryHints.FETCH_SIZE, 500)
+                            .setHint(QueryHints.READ_ONLY, true)
+                            .getResultStream();
+    }
+}
@@ -0,0 +1,51 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.Loan;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import java.util.Collection;
+
+/**
+ * Loan filters that each match a single index: {@code id_book}, {@code customer} or the primary key. Filters
+ * over several columns are written as one subquery per column instead of an {@code or} over the columns, which
+ * the database could only answer with a scan.
+ */
+public final class LoanSpecifications {
+
+    private LoanSpecifications() {
+    }
+
+    public static Specification<Loan> byBookId(Integer bookId) {
+        return (root, query, cb) -> cb.equal(root.get("book").get("id"), bookId);
+    }
+
+    public static Specification<Loan> byCustomer(String customer) {
+        return (root, query, cb) -> cb.equal(root.get("customer"), customer);
+    }
+
+    // id in (loans of the book) or id in (loans of the customer): the union of two index lookups
+    public static Specification<Loan> byBookIdOrCustomer(Integer bookId, String customer) {
+        return (root, query, cb) -> {
+            Subquery<Integer> ofBook = query.subquery(Integer.class);
+            Root<Loan> bookLoan = ofBook.from(Loan.class);
+            ofBook.select(bookLoan.get("id")).where(cb.equal(bookLoan.get("book").get("id"), bookId));
+
+            Subquery<Integer> ofCustomer = query.subquery(Integer.class);
+            Root<Loan> customerLoan = ofCustomer.from(Loan.class);
+            ofCustomer.select(customerLoan.get("id")).where(cb.equal(customerLoan.get("customer"), customer));
+
+            return cb.or(root.get("id").in(ofBook), root.get("id").in(ofCustomer));
+        };
+    }
+
+    public static Specification<Loan> byIdIn(Collection<Integer> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    public static Specification<Loan> none() {
+        return (root, query, cb) -> cb.disjunction();
+    }
+}
@@ -0,0 +1,18 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.MailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Integer> {
+
+    @Query("select m from MailOutbox m where m.status = :status and m.nextAttemptAt <= :now order by m.nextAttemptAt, m.id")
+    List<MailOutbox> findDue(@Param("status") MailOutbox.Status status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(MailOutbox.Status status);
+}
@@ -0,0 +1,40 @@
+package br.com.libraryapi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs side effects of loan writes (counters, journal) only once the transaction commits, so writes rolled back
+ * (and retried, see {@link LoanWriteBatcher}) are not seen twice. Without a transaction they run at once.
+ *
+ * A failing action is logged and never rethrown: the loan change has committed by then, and an exception would
+ * report it as failed to the client, or make {@link LoanWriteBatcher} write the batch again.
+ */
+@Slf4j
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runQuietly(action);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                runQuietly(action);
+            }
+        });
+    }
+
+    private static void runQuietly(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.error("Side effect of a committed loan change failed", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.exception.BussinessException;
+import org.springframework.http.MediaType;
+
+public enum BookImportFormat {
+
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final MediaType mediaType;
+
+    BookImportFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public static BookImportFormat of(String contentType) {
+        if (contentType != null) {
+            MediaType requested = MediaType.parseMediaType(contentType);
+            for (BookImportFormat format : values()) {
+                if (format.mediaType.includes(requested)) {
+                    return format;
+                }
+            }
+        }
+        throw new BussinessException("Unsupported import format: " + contentType);
+    }
+}
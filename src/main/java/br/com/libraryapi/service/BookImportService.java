@@ -0,0 +1,13 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.api.dto.BookImportResultDTO;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Service
+public interface BookImportService {
+
+    BookImportResultDTO importBooks(InputStream input, BookImportFormat format) throws IOException;
+}
@@ -0,0 +1,289 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.api.dto.BookImportResultDTO;
+import br.com.libraryapi.api.dto.BookImportRowDTO;
+import br.com.libraryapi.config.BusinessMetrics;
+import br.com.libraryapi.exception.BussinessException;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.BookRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the import line by line and handles it in chunks, so memory is bounded by the chunk size and
+ * not by the size of the upload. For every chunk the ISBNs already registered are fetched with a
+ * single {@code in} query and the new books are written with one batched {@code saveAll}. Rejected rows are
+ * listed up to {@code max-rejected-rows} and only counted after that.
+ */
+@Service
+@Slf4j
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final List<String> CSV_COLUMNS = List.of("title", "author", "isbn");
+
+    private static final String DUPLICATED_MESSAGE = "ISBN já cadastrado.";
+
+    private final BookRepository bookRepository;
+
+    private final BookSearchIndex bookSearchIndex;
+
+    private final IsbnBloomFilter isbnFilter;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final BusinessMetrics businessMetrics;
+
+    private final int chunkSize;
+
+    private final int maxRejectedRows;
+
+    public BookImportServiceImpl(BookRepository bookRepository,
+                                 BookSearchIndex bookSearchIndex,
+                                 IsbnBloomFilter isbnFilter,
+                                 Validator validator,
+                                 ObjectMapper objectMapper,
+                                 BusinessMetrics businessMetrics,
+                                 @Value("${application.books.import.chunk-size:500}") int chunkSize,
+                                 @Value("${application.books.import.max-rejected-rows:1000}") int maxRejectedRows) {
+        this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.isbnFilter = isbnFilter;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.businessMetrics = businessMetrics;
+        this.chunkSize = chunkSize;
+        this.maxRejectedRows = maxRejectedRows;
+    }
+
+    @Override
+    public BookImportResultDTO importBooks(InputStream input, BookImportFormat format) throws IOException {
+        BookImportResultDTO result = BookImportResultDTO.builder().rejected(new ArrayList<>()).build();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        int[] columns = null;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (format == BookImportFormat.CSV && columns == null) {
+                columns = csvColumns(parseCsv(line));
+                continue;
+            }
+
+            result.setTotal(result.getTotal() + 1);
+            BookDTO dto;
+            try {
+                dto = format == BookImportFormat.NDJSON ? objectMapper.readValue(line, BookDTO.class)
+                                                        : fromCsv(columns, parseCsv(line));
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                reject(result, lineNumber, null, BookImportRowDTO.Status.INVALID, "Malformed row.");
+                continue;
+            }
+
+            Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                                           .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                                           .sorted()
+                                           .collect(Collectors.joining(", "));
+                reject(result, lineNumber, dto.getIsbn(), BookImportRowDTO.Status.INVALID, message);
+                continue;
+            }
+
+            chunk.add(new Row(lineNumber, dto));
+            if (chunk.size() == chunkSize) {
+                flush(chunk, result);
+                chunk.clear();
+            }
+        }
+        flush(chunk, result);
+
+        log.info("Imported {} of {} books ({} duplicated, {} invalid)",
+                 result.getCreated(), result.getTotal(), result.getDuplicated(), result.getInvalid());
+        return result;
+    }
+
+    private void flush(List<Row> chunk, BookImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // only the ISBNs the filter cannot rule out are looked up
+        Set<String> isbns = chunk.stream()
+                                 .map(row -> row.dto.getIsbn())
+                                 .filter(isbn -> !isbnFilter.isDefinitelyAbsent(isbn))
+                                 .collect(Collectors.toSet());
+        Set<String> registered = isbns.isEmpty() ? Collections.emptySet() : bookRepository.findIsbnsIn(isbns);
+        isbns.forEach(isbn -> isbnFilter.recordLookup(registered.contains(isbn)));
+
+        Set<String> seen = new HashSet<>();
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            String isbn = row.dto.getIsbn();
+            if (registered.contains(isbn) || !seen.add(isbn)) {
+                rejectDuplicated(result, row);
+                continue;
+            }
+            accepted.add(row);
+        }
+
+        List<Book> saved;
+        try {
+            saved = bookRepository.saveAll(accepted.stream().map(this::toBook).collect(Collectors.toList()));
+        } catch (DataIntegrityViolationException e) {
+            if (!BookServiceImpl.isDuplicatedIsbn(e)) {
+                throw e;
+            }
+            // an ISBN the filter ruled out was registered meanwhile, e.g. by another instance: find it row by row
+            saved = new ArrayList<>(accepted.size());
+            for (Row row : accepted) {
+                try {
+                    saved.add(bookRepository.save(toBook(row)));
+                } catch (DataIntegrityViolationException single) {
+                    if (!BookServiceImpl.isDuplicatedIsbn(single)) {
+                        throw single;
+                    }
+                    rejectDuplicated(result, row);
+                }
+            }
+        }
+        saved.forEach(book -> isbnFilter.add(book.getIsbn()));
+        saved.forEach(bookSearchIndex::index);
+        result.setCreated(result.getCreated() + saved.size());
+    }
+
+    private Book toBook(Row row) {
+        return Book.builder()
+                   .title(row.dto.getTitle())
+                   .author(row.dto.getAuthor())
+                   .isbn(row.dto.getIsbn())
+                   .copies(row.dto.getCopies())
+                   .build();
+    }
+
+    private void rejectDuplicated(BookImportResultDTO result, Row row) {
+        reject(result, row.line, row.dto.getIsbn(), BookImportRowDTO.Status.DUPLICATED, DUPLICATED_MESSAGE);
+        businessMetrics.rejected("BookImportService.importBooks", DUPLICATED_MESSAGE, 1);
+    }
+
+    private void reject(BookImportResultDTO result, int line, String isbn, BookImportRowDTO.Status status, String message) {
+        if (status == BookImportRowDTO.Status.DUPLICATED) {
+            result.setDuplicated(result.getDuplicated() + 1);
+        } else {
+            result.setInvalid(result.getInvalid() + 1);
+        }
+        if (result.getRejected().size() >= maxRejectedRows) {
+            result.setRejectedOmitted(result.getRejectedOmitted() + 1);
+            return;
+        }
+        result.getRejected().add(BookImportRowDTO.builder()
+                                                 .line(line)
+                                                 .isbn(isbn)
+                                                 .status(status)
+                                                 .message(message)
+                                                 .build());
+    }
+
+    /**
+     * @return the position of title, author and isbn in the CSV header.
+     */
+    private int[] csvColumns(List<String> header) {
+        List<String> names = header.stream()
+                                   .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                                   .collect(Collectors.toList());
+        int[] columns = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(CSV_COLUMNS.get(i));
+            if (columns[i] < 0) {
+                throw new BussinessException("CSV header must contain the columns title, author and isbn.");
+            }
+        }
+        return columns;
+    }
+
+    private BookDTO fromCsv(int[] columns, List<String> values) {
+        return BookDTO.builder()
+                      .title(column(values, columns[0]))
+                      .author(column(values, columns[1]))
+                      .isbn(column(values, columns[2]))
+                      .build();
+    }
+
+    private String column(List<String> values, int index) {
+        if (index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits one CSV line on commas, honouring double quoted values and {@code ""} escapes.
+     */
+    static List<String> parseCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value.");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static final class Row {
+
+        private final int line;
+        private final BookDTO dto;
+
+        Row(int line, BookDTO dto) {
+            this.line = line;
+            this.dto = dto;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package br.com.libraryapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serialized JSON of single books, kept off the heap so {@code GET /api/books/{id}} can answer without Jackson
+ * and without giving the garbage collector more to trace.
+ *
+ * Entries live in one direct buffer of {@code max-bytes}, cut in fixed size blocks; an entry takes as many
+ * blocks as its length needs, in any order. The buffer is split in {@code stripes} segments, each with its own
+ * lock, blocks and recency order, and a book always goes to the same segment: reads of different books rarely
+ * wait on each other. When a segment has not enough free blocks its least recently read entries are dropped.
+ * Only the block lists and versions stay on the heap. {@code max-bytes=0} disables it.
+ *
+ * {@link BookServiceImpl} evicts a book after updating or deleting it. A reader that loaded the book before
+ * that eviction must not put the old JSON back, so {@link #put} takes the {@link #stamp} of the book read
+ * before loading, and is ignored if a book of the same segment was evicted since then.
+ */
+@Component
+@Slf4j
+public class BookJsonCache {
+
+    private final Segment[] segments;
+
+    private final ThreadLocal<Hit> hits = ThreadLocal.withInitial(Hit::new);
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    public BookJsonCache(MeterRegistry meterRegistry,
+                         @Value("${application.books.json-cache.max-bytes:33554432}") int maxBytes,
+                         @Value("${application.books.json-cache.block-size:256}") int blockSize,
+                         @Value("${application.books.json-cache.stripes:16}") int stripes) {
+        int blocks = maxBytes / blockSize;
+        int count = Math.max(1, Math.min(stripes, blocks));
+        int blocksPerSegment = blocks / count;
+        ByteBuffer slab = ByteBuffer.allocateDirect(blocksPerSegment * count * blockSize);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            slab.clear().position(i * blocksPerSegment * blockSize).limit((i + 1) * blocksPerSegment * blockSize);
+            segments[i] = new Segment(slab.slice(), blockSize, blocksPerSegment);
+        }
+        if (blocks > 0) {
+            log.info("Book JSON cache of {} segments of {} blocks of {} bytes off heap", count, blocksPerSegment, blockSize);
+        }
+
+        this.hitCounter = meterRegistry.counter("library.books.json-cache.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("library.books.json-cache.requests", "result", "miss");
+        Gauge.builder("library.books.json-cache.bytes", this, BookJsonCache::usedBytes)
+             .description("Bytes of book JSON held off heap")
+             .baseUnit("bytes")
+             .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return segments[0].freeBlocks.length > 0;
+    }
+
+    /**
+     * @return a token for {@link #put} of the book, read before loading it.
+     */
+    public long stamp(Integer id) {
+        Segment segment = segmentOf(id);
+        synchronized (segment) {
+            return segment.evictions;
+        }
+    }
+
+    /**
+     * Copies the JSON of a book into a buffer of the calling thread.
+     *
+     * @return the cached JSON and its version, valid until the next call on the same thread, or null when the
+     * book is not cached.
+     */
+    public Hit get(Integer id) {
+        Hit hit = hits.get();
+        Segment segment = segmentOf(id);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(id);
+            if (entry == null) {
+                missCounter.increment();
+                return null;
+            }
+            hit.fill(entry, segment);
+        }
+        hitCounter.increment();
+        return hit;
+    }
+
+    /**
+     * Stores the JSON of a book, unless a book of its segment was evicted since {@code stamp} or it does not fit
+     * the segment.
+     */
+    public void put(Integer id, Integer version, byte[] json, long stamp) {
+        Segment segment = segmentOf(id);
+        synchronized (segment) {
+            if (stamp == segment.evictions) {
+                segment.put(id, version, json);
+            }
+        }
+    }
+
+    public void evict(Integer id) {
+        Segment segment = segmentOf(id);
+        synchronized (segment) {
+            segment.evictions++;
+            segment.release(segment.entries.remove(id));
+        }
+    }
+
+    public long usedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                used += segment.usedBytes;
+            }
+        }
+        return used;
+    }
+
+    private Segment segmentOf(Integer id) {
+        return segments[Math.floorMod(id, segments.length)];
+    }
+
+    /**
+     * One stripe of the cache; every field is guarded by the segment's monitor.
+     */
+    private static final class Segment {
+
+        private final ByteBuffer slab;
+
+        private final int blockSize;
+
+        private final int[] freeBlocks;
+
+        private int freeCount;
+
+        private final Map<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long evictions;
+
+        private long usedBytes;
+
+        Segment(ByteBuffer slab, int blockSize, int blocks) {
+            this.slab = slab;
+            this.blockSize = blockSize;
+            this.freeBlocks = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                freeBlocks[i] = blocks - 1 - i;
+            }
+            this.freeCount = blocks;
+        }
+
+        void put(Integer id, Integer version, byte[] json) {
+            int needed = (json.length + blockSize - 1) / blockSize;
+            if (freeBlocks.length == 0 || needed > freeBlocks.length) {
+                return;
+            }
+            release(entries.remove(id));
+            while (freeCount < needed) {
+                Map.Entry<Integer, Entry> eldest = entries.entrySet().iterator().next();
+                entries.remove(eldest.getKey());
+                release(eldest.getValue());
+            }
+
+            int[] blocks = new int[needed];
+            for (int i = 0; i < needed; i++) {
+                blocks[i] = freeBlocks[--freeCount];
+                int offset = i * blockSize;
+                slab.clear().position(blocks[i] * blockSize);
+                slab.put(json, offset, Math.min(blockSize, json.length - offset));
+            }
+            entries.put(id, new Entry(version, json.length, blocks));
+            usedBytes += json.length;
+        }
+
+        void release(Entry entry) {
+            if (entry == null) {
+                return;
+            }
+            for (int block : entry.blocks) {
+                freeBlocks[freeCount++] = block;
+            }
+            usedBytes -= entry.length;
+        }
+    }
+
+    /**
+     * The JSON of one cached book, reused by each thread for every read.
+     */
+    public static final class Hit {
+
+        private Integer version;
+
+        private byte[] bytes = new byte[1024];
+
+        private int length;
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        private void fill(Entry entry, Segment segment) {
+            if (bytes.length < entry.length) {
+                bytes = new byte[Math.max(entry.length, bytes.length * 2)];
+            }
+            version = entry.version;
+            length = entry.length;
+            for (int i = 0; i < entry.blocks.length; i++) {
+                int offset = i * segment.blockSize;
+                segment.slab.clear().position(entry.blocks[i] * segment.blockSize);
+                segment.slab.get(bytes, offset, Math.min(segment.blockSize, length - offset));
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final Integer version;
+        private final int length;
+        private final int[] blocks;
+
+        Entry(Integer version, int length, int[] blocks) {
+            this.version = version;
+            this.length = length;
+            this.blocks = blocks;
+        }
+    }
+}
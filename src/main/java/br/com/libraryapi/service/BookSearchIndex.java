@@ -0,0 +1,379 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.BookRepository;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory inverted index over book title, author and isbn, answering the "contains, ignoring case"
+ * filters of {@link BookService#find(Book, Pageable)} without a {@code like '%x%'} table scan.
+ *
+ * Every field is indexed by its trigrams; a query looks up the postings of its own trigrams, intersects
+ * them and verifies the candidates. Word tokens are only used for ranking. The index is loaded once the
+ * application is ready and kept up to date by {@link BookServiceImpl}; until then searches go to the database.
+ *
+ * Documents also keep the book as registered, so the catalog can be read from memory without touching the
+ * database (see {@link #get(Integer)} and {@link #all()}).
+ *
+ * The rebuild reads the table in slices while books keep being saved and deleted. A change indexed by
+ * {@link BookServiceImpl} happens after its commit, so it is at least as recent as any slice: books changed
+ * since the rebuild started are left as the change indexed them instead of being overwritten by a slice.
+ */
+@Component
+@Slf4j
+public class BookSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final BookRepository bookRepository;
+
+    private final int batchSize;
+
+    // ordered by id, so the whole catalog can be streamed in a stable order
+    private final NavigableMap<Integer, Document> documents = new ConcurrentSkipListMap<>();
+
+    private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    // ids indexed or removed since the running rebuild started, null when none runs; guarded by this
+    private Set<Integer> changedDuringRebuild;
+
+    public BookSearchIndex(BookRepository bookRepository,
+                           @Value("${application.search.rebuild-batch-size:1000}") int batchSize) {
+        this.bookRepository = bookRepository;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Example<Book> all = Example.of(new Book(), ExampleMatcher.matching().withIgnoreNullValues());
+        synchronized (this) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        try {
+            Keyset after = null;
+            do {
+                KeysetSlice<Book> slice = bookRepository.findSlice(all, after, Sort.by("id"), batchSize);
+                synchronized (this) {
+                    for (Book book : slice.getContent()) {
+                        if (!changedDuringRebuild.contains(book.getId())) {
+                            put(book);
+                        }
+                    }
+                }
+                after = slice.getNext();
+            } while (after != null);
+        } finally {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+        }
+        ready = true;
+        log.info("Book search index built with {} books in {} ms", documents.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return whether the filter can be answered by the index: only title, author and isbn criteria and
+     * no explicit sort (results are ranked by relevance).
+     */
+    public boolean supports(Book filter, Pageable pageable) {
+        return ready
+                && filter != null
+                && filter.getId() == null
+                && filter.getCopies() == null
+                && pageable.getSort().isUnsorted()
+                && (filter.getTitle() != null || filter.getAuthor() != null || filter.getIsbn() != null);
+    }
+
+    public synchronized void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(book.getId());
+        }
+        put(book);
+    }
+
+    public synchronized void remove(Integer id) {
+        if (id == null) {
+            return;
+        }
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(id);
+        }
+        Document previous = documents.remove(id);
+        if (previous != null) {
+            unlink(previous);
+        }
+    }
+
+    private void put(Book book) {
+        Document document = new Document(book);
+        Document previous = documents.put(document.id, document);
+        if (previous != null) {
+            unlink(previous);
+        }
+        link(document);
+    }
+
+    /**
+     * @return the book as last indexed, without its loans.
+     */
+    public Optional<Book> get(Integer id) {
+        Document document = documents.get(id);
+        return document == null ? Optional.empty() : Optional.of(document.toBook());
+    }
+
+    /**
+     * @return every indexed book, ordered by id. Books are materialized while iterating, so the catalog can be
+     * streamed without copying it.
+     */
+    public Iterable<Book> all() {
+        return () -> documents.values().stream().map(Document::toBook).iterator();
+    }
+
+    /**
+     * @return one page of matching book ids, best matches first.
+     */
+    public Page<Integer> search(Book filter, Pageable pageable) {
+        List<Integer> ranked = rank(filter);
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new PageImpl<>(new ArrayList<>(ranked.subList(from, to)), pageable, ranked.size());
+    }
+
+    /**
+     * @return the ids of every matching book, best matches first.
+     */
+    public List<Integer> rank(Book filter) {
+        List<Criterion> criteria = new ArrayList<>();
+        addCriterion(criteria, Field.TITLE, filter.getTitle());
+        addCriterion(criteria, Field.AUTHOR, filter.getAuthor());
+        addCriterion(criteria, Field.ISBN, filter.getIsbn());
+
+        Set<Integer> candidates = null;
+        for (Criterion criterion : criteria) {
+            candidates = criterion.candidates(candidates);
+        }
+        if (candidates == null) {
+            candidates = Collections.emptySet();
+        }
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Integer id : candidates) {
+            Document document = documents.get(id);
+            if (document == null) {
+                continue;
+            }
+            int score = 0;
+            for (Criterion criterion : criteria) {
+                int fieldScore = criterion.score(document);
+                if (fieldScore == 0) {
+                    score = 0;
+                    break;
+                }
+                score += fieldScore;
+            }
+            if (score > 0) {
+                scores.put(id, score);
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>(scores.keySet());
+        ranked.sort(Comparator.<Integer>comparingInt(scores::get).reversed().thenComparing(Comparator.naturalOrder()));
+        return ranked;
+    }
+
+    private void addCriterion(List<Criterion> criteria, Field field, String value) {
+        if (value != null) {
+            criteria.add(new Criterion(field, normalize(value)));
+        }
+    }
+
+    private void link(Document document) {
+        for (Field field : Field.values()) {
+            for (String gram : grams(field, field.of(document))) {
+                postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(document.id);
+            }
+        }
+    }
+
+    private void unlink(Document document) {
+        for (Field field : Field.values()) {
+            for (String gram : grams(field, field.of(document))) {
+                postings.computeIfPresent(gram, (key, ids) -> {
+                    ids.remove(document.id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+
+    private static Set<String> grams(Field field, String value) {
+        if (value == null || value.length() < GRAM) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(field.prefix + value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    private class Criterion {
+
+        private final Field field;
+        private final String query;
+
+        Criterion(Field field, String query) {
+            this.field = field;
+            this.query = query;
+        }
+
+        /**
+         * Narrows the candidates to the documents holding every trigram of the query. Queries shorter than
+         * a trigram cannot be narrowed and keep every document as candidate.
+         */
+        Set<Integer> candidates(Set<Integer> current) {
+            Set<String> grams = grams(field, query);
+            if (grams.isEmpty()) {
+                return current != null ? current : new HashSet<>(documents.keySet());
+            }
+            List<Set<Integer>> lists = new ArrayList<>();
+            for (String gram : grams) {
+                Set<Integer> ids = postings.get(gram);
+                if (ids == null) {
+                    return Collections.emptySet();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+
+            Set<Integer> result = new HashSet<>(current != null && current.size() < lists.get(0).size()
+                                                        ? current : lists.get(0));
+            if (current != null) {
+                result.retainAll(current);
+            }
+            for (Set<Integer> ids : lists) {
+                result.retainAll(ids);
+            }
+            return result;
+        }
+
+        /**
+         * @return 0 when the field does not contain the query, otherwise a higher score for exact value,
+         * whole word and prefix matches.
+         */
+        int score(Document document) {
+            String value = field.of(document);
+            if (value == null || !value.contains(query)) {
+                return 0;
+            }
+            if (value.equals(query)) {
+                return 4;
+            }
+            boolean prefix = value.startsWith(query);
+            for (String token : value.split("[^\\p{L}\\p{N}]+")) {
+                if (token.equals(query)) {
+                    return 3;
+                }
+                prefix = prefix || token.startsWith(query);
+            }
+            return prefix ? 2 : 1;
+        }
+    }
+
+    private enum Field {
+        TITLE('t'), AUTHOR('a'), ISBN('i');
+
+        private final char prefix;
+
+        Field(char prefix) {
+            this.prefix = prefix;
+        }
+
+        String of(Document document) {
+            switch (this) {
+                case TITLE:
+                    return document.title;
+                case AUTHOR:
+                    return document.author;
+                default:
+                    return document.isbn;
+            }
+        }
+    }
+
+    private static final class Document {
+
+        private final Integer id;
+        private final String title;
+        private final String author;
+        private final String isbn;
+        private final String originalTitle;
+        private final String originalAuthor;
+        private final String originalIsbn;
+        private final Integer copies;
+
+        Document(Book book) {
+            this.id = book.getId();
+            this.title = normalize(book.getTitle());
+            this.author = normalize(book.getAuthor());
+            this.isbn = normalize(book.getIsbn());
+            this.originalTitle = book.getTitle();
+            this.originalAuthor = book.getAuthor();
+            this.originalIsbn = book.getIsbn();
+            this.copies = book.getCopies();
+        }
+
+        /**
+         * @return a new book every time, so callers cannot change the indexed one.
+         */
+        Book toBook() {
+            return Book.builder()
+                       .id(id)
+                       .title(originalTitle)
+                       .author(originalAuthor)
+                       .isbn(originalIsbn)
+                       .copies(copies)
+                       .build();
+        }
+    }
+}
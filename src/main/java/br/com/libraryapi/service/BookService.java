@@ -1,10 +1,14 @@
 package br.com.libraryapi.service;
 
 import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -19,5 +23,9 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    KeysetSlice<Book> find(Book filter, Keyset after, Pageable pageRequest);
+
     Optional<Book> getBookByIsbn(String s);
+
+    List<Book> getBooksByIsbn(Collection<String> isbns);
 }
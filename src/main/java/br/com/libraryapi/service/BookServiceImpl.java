@@ -3,14 +3,30 @@ package br.com.libraryapi.service;
 import br.com.libraryapi.exception.BussinessException;
 import br.com.libraryapi.model.Book;
 import br.com.libraryapi.repository.BookRepository;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookServiceImpl implements BookService {
@@ -19,53 +35,153 @@ public class BookServiceImpl implements BookService {
     private BookRepository bookRepository;
 
 
-    public BookServiceImpl (BookRepository bookRepository) {
+    private BookSearchIndex bookSearchIndex;
+
+    private BookJsonCache bookJsonCache;
+
+    private IsbnBloomFilter isbnFilter;
+
+    public BookServiceImpl (BookRepository bookRepository, BookSearchIndex bookSearchIndex, BookJsonCache bookJsonCache,
+                            IsbnBloomFilter isbnFilter) {
         this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookJsonCache = bookJsonCache;
+        this.isbnFilter = isbnFilter;
     }
 
     @Override
+    @CacheEvict(cacheNames = "booksByIsbn", key = "#book.isbn", condition = "#book.isbn != null")
     public Book save(Book book) {
-        if (bookRepository.existsByIsbn(book.getIsbn())) {
-            throw new BussinessException("ISBN já cadastrado.");
+        if (!isbnFilter.isDefinitelyAbsent(book.getIsbn())) {
+            boolean exists = bookRepository.existsByIsbn(book.getIsbn());
+            isbnFilter.recordLookup(exists);
+            if (exists) {
+                throw new BussinessException("ISBN já cadastrado.");
+            }
         }
-        return bookRepository.save(book);
+        Book savedBook;
+        try {
+            savedBook = bookRepository.save(book);
+        } catch (DataIntegrityViolationException e) {
+            // a book the filter did not know yet, e.g. created by another instance since its last rebuild
+            if (isDuplicatedIsbn(e)) {
+                throw new BussinessException("ISBN já cadastrado.");
+            }
+            throw e;
+        }
+        isbnFilter.add(savedBook.getIsbn());
+        bookSearchIndex.index(savedBook);
+        return savedBook;
     }
 
     @Override
+    @Cacheable(cacheNames = "books", key = "#id", unless = "#result == null")
     public Optional<Book> getById(Integer id) {
         return bookRepository.findById(id);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "books", key = "#book.id", condition = "#book != null && #book.id != null"),
+            @CacheEvict(cacheNames = "booksByIsbn", key = "#book.isbn", condition = "#book != null && #book.isbn != null")
+    })
     public void delete(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("book id cant be null.");
         }
         bookRepository.delete(book);
+        bookSearchIndex.remove(book.getId());
+        bookJsonCache.evict(book.getId());
     }
 
+    // the isbn the book had before is not known here, so every isbn entry goes; updates are rare next to lookups
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "books", key = "#book.id", condition = "#book != null && #book.id != null"),
+            @CacheEvict(cacheNames = "booksByIsbn", allEntries = true)
+    })
     public Book update(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("book id cant be null.");
         }
-        return bookRepository.save(book);
+        Book updatedBook;
+        try {
+            updatedBook = bookRepository.save(book);
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicatedIsbn(e)) {
+                throw new BussinessException("ISBN já cadastrado.");
+            }
+            throw e;
+        }
+        // the isbn may have changed; an isbn missing from the filter would be reported absent
+        isbnFilter.add(updatedBook.getIsbn());
+        bookSearchIndex.index(updatedBook);
+        bookJsonCache.evict(updatedBook.getId());
+        return updatedBook;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Book> find(Book filter, Pageable pageRequest) {
-        Example<Book> bookExample = Example.of(filter,
-                                    ExampleMatcher
-                                            .matching()
-                                            .withIgnoreCase()
-                                            .withIgnoreNullValues()
-                                            .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
-
-        return bookRepository.findAll(bookExample, pageRequest);
+        if (bookSearchIndex.supports(filter, pageRequest)) {
+            return hydrate(bookSearchIndex.search(filter, pageRequest));
+        }
+        return bookRepository.findAll(example(filter), pageRequest);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<Book> find(Book filter, Keyset after, Pageable pageRequest) {
+        return bookRepository.findSlice(example(filter), after, pageRequest.getSort(), pageRequest.getPageSize());
+    }
+
+    @Override
+    @Cacheable(cacheNames = "booksByIsbn", key = "#isbn", condition = "#isbn != null", unless = "#result == null")
     public Optional<Book> getBookByIsbn(String isbn) {
-        return bookRepository.findByIsbn(isbn);
+        if (isbnFilter.isDefinitelyAbsent(isbn)) {
+            return Optional.empty();
+        }
+        Optional<Book> book = bookRepository.findByIsbn(isbn);
+        isbnFilter.recordLookup(book.isPresent());
+        return book;
+    }
+
+    @Override
+    public List<Book> getBooksByIsbn(Collection<String> isbns) {
+        if (isbns.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return bookRepository.findByIsbnIn(isbns);
+    }
+
+    /**
+     * @return whether the exception is a violation of the unique index on the ISBN.
+     */
+    static boolean isDuplicatedIsbn(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("ux_book_isbn");
+    }
+
+    private Example<Book> example(Book filter) {
+        return Example.of(filter,
+                          ExampleMatcher
+                                  .matching()
+                                  .withIgnoreCase()
+                                  .withIgnoreNullValues()
+                                  .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+    }
+
+    private Page<Book> hydrate(Page<Integer> ids) {
+        Map<Integer, Book> books = bookRepository.findAllById(ids.getContent())
+                                                 .stream()
+                                                 .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> content = ids.getContent()
+                                .stream()
+                                .map(books::get)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toList());
+        // books deleted since they were indexed are not counted either
+        long total = ids.getTotalElements() - (ids.getContent().size() - content.size());
+        return new PageImpl<>(content, ids.getPageable(), total);
     }
 }
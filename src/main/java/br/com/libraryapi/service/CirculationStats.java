@@ -0,0 +1,244 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Circulation counters (active, overdue and total loans, overall and per book) kept in memory, so dashboards
+ * can poll them without reading the loan table.
+ *
+ * {@link LoanServiceImpl} reports every checkout, return and reopening, applied once its transaction commits
+ * (see {@link AfterCommit}); the counters are {@link LongAdder}s, so concurrent checkouts do not contend on a
+ * single value. Open loans are also counted per loan date: a loan turns overdue by the passing of time and not
+ * by an event, so the overdue count is the active count minus the loans of the last
+ * {@link LoanServiceImpl#LOAN_DAYS} days, which is a fixed number of buckets whatever the size of the table.
+ *
+ * The counters are seeded from the database once the application is ready and rebuilt on a schedule, which
+ * corrects any drift (changes made outside of the service, counters of deleted books). The database is read in
+ * one repeatable read transaction, so both queries see the same snapshot. Events committed meanwhile are kept
+ * aside and, in that same snapshot, checked against their loan: only the ones the snapshot does not show yet
+ * (loan missing for a checkout, still open for a return, still returned for a reopening) are added to the
+ * rebuilt counters. A loan returned and reopened again while the database is read, and the few events racing
+ * the swap itself, can still be off by one until the next run.
+ */
+@Component
+@Slf4j
+public class CirculationStats {
+
+    private final LoanRepository loanRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Counters current = new Counters();
+
+    // receives the events committed while a reconciliation is reading the database
+    private volatile Queue<Event> pending;
+
+    private volatile LocalDateTime reconciledAt;
+
+    public CirculationStats(LoanRepository loanRepository, PlatformTransactionManager transactionManager) {
+        this.loanRepository = loanRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.stats.reconcile-ms:600000}",
+               fixedDelayString = "${application.stats.reconcile-ms:600000}")
+    public synchronized void reconcile() {
+        long start = System.currentTimeMillis();
+        Queue<Event> delta = new ConcurrentLinkedQueue<>();
+        pending = delta;
+
+        Counters fresh = transactionTemplate.execute(status -> {
+            Counters counters = new Counters();
+            for (Object[] row : loanRepository.countByBook()) {
+                if (row[0] != null) {
+                    long count = (Long) row[1];
+                    counters.total.add(count);
+                    counters.book((Integer) row[0]).total.add(count);
+                }
+            }
+            for (Object[] row : loanRepository.countOpenByBookAndLoanDate()) {
+                if (row[0] != null) {
+                    counters.open((Integer) row[0], (LocalDate) row[1], (Long) row[2]);
+                }
+            }
+
+            current = counters;
+            pending = null;
+            addUnseen(counters, delta);
+            return counters;
+        });
+
+        reconciledAt = LocalDateTime.now();
+        log.info("Circulation stats reconciled with {} active loans in {} ms",
+                 fresh.active.sum(), System.currentTimeMillis() - start);
+    }
+
+    // adds the events the snapshot of the running transaction does not show yet
+    private void addUnseen(Counters counters, Collection<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Set<Integer> ids = events.stream()
+                                 .map(event -> event.loanId)
+                                 .filter(Objects::nonNull)
+                                 .collect(Collectors.toSet());
+        Map<Integer, Boolean> returnedById = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Object[] row : loanRepository.findReturnedByIds(ids)) {
+                returnedById.put((Integer) row[0], Boolean.TRUE.equals(row[1]));
+            }
+        }
+        for (Event event : events) {
+            if (event.loanId == null || !event.seen.test(returnedById.get(event.loanId))) {
+                event.change.apply(counters);
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return reconciledAt != null;
+    }
+
+    public LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+
+    public void loanCreated(Loan loan) {
+        Integer bookId = loan.getBook().getId();
+        LocalDate loanDate = loan.getLoanDate();
+        afterCommit(new Event(loan.getId(), Objects::nonNull, counters -> {
+            counters.total.increment();
+            counters.book(bookId).total.increment();
+            counters.open(bookId, loanDate, 1);
+        }));
+    }
+
+    public void loanReturned(Loan loan) {
+        Integer bookId = loan.getBook().getId();
+        LocalDate loanDate = loan.getLoanDate();
+        afterCommit(new Event(loan.getId(), Boolean.TRUE::equals, counters -> counters.open(bookId, loanDate, -1)));
+    }
+
+    public void loanReopened(Loan loan) {
+        Integer bookId = loan.getBook().getId();
+        LocalDate loanDate = loan.getLoanDate();
+        afterCommit(new Event(loan.getId(), Boolean.FALSE::equals, counters -> counters.open(bookId, loanDate, 1)));
+    }
+
+    public long activeLoans() {
+        return current.active.sum();
+    }
+
+    public long overdueLoans() {
+        Counters counters = current;
+        long onTime = counters.undated.sum();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < LoanServiceImpl.LOAN_DAYS; i++) {
+            LongAdder open = counters.openByDate.get(today.minusDays(i));
+            if (open != null) {
+                onTime += open.sum();
+            }
+        }
+        return Math.max(0, counters.active.sum() - onTime);
+    }
+
+    public long totalLoans() {
+        return current.total.sum();
+    }
+
+    public long activeLoans(Integer bookId) {
+        BookCounters book = current.books.get(bookId);
+        return book == null ? 0 : book.active.sum();
+    }
+
+    public long totalLoans(Integer bookId) {
+        BookCounters book = current.books.get(bookId);
+        return book == null ? 0 : book.total.sum();
+    }
+
+    private void afterCommit(Event event) {
+        AfterCommit.run(() -> apply(event));
+    }
+
+    private void apply(Event event) {
+        Queue<Event> delta = pending;
+        event.change.apply(current);
+        if (delta != null) {
+            delta.add(event);
+        }
+    }
+
+    private interface Change {
+        void apply(Counters counters);
+    }
+
+    private static final class Event {
+
+        private final Integer loanId;
+        // whether a snapshot with the loan in this state (returned flag, null when missing) already counts it
+        private final Predicate<Boolean> seen;
+        private final Change change;
+
+        Event(Integer loanId, Predicate<Boolean> seen, Change change) {
+            this.loanId = loanId;
+            this.seen = seen;
+            this.change = change;
+        }
+    }
+
+    private static final class Counters {
+
+        private final LongAdder active = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        // open loans without loan date, never overdue
+        private final LongAdder undated = new LongAdder();
+        private final Map<LocalDate, LongAdder> openByDate = new ConcurrentHashMap<>();
+        private final Map<Integer, BookCounters> books = new ConcurrentHashMap<>();
+
+        BookCounters book(Integer bookId) {
+            return books.computeIfAbsent(bookId, id -> new BookCounters());
+        }
+
+        void open(Integer bookId, LocalDate loanDate, long count) {
+            active.add(count);
+            book(bookId).active.add(count);
+            if (loanDate == null) {
+                undated.add(count);
+            } else {
+                openByDate.computeIfAbsent(loanDate, date -> new LongAdder()).add(count);
+            }
+        }
+    }
+
+    private static final class BookCounters {
+
+        private final LongAdder active = new LongAdder();
+        private final LongAdder total = new LongAdder();
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Customer;
+import br.com.libraryapi.model.Loan;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public interface CustomerService {
+
+    Optional<Customer> getById(Integer id);
+
+    // the customer with the email, or with the name when there is no email, created on first use; null when both are null
+    Customer resolve(String name, String email);
+
+    // sets the customer id of each loan as resolve would, with one lookup and one insert batch for all of them;
+    // joins the caller's transaction, so the customers are only kept when the loans are
+    void resolveAll(List<Loan> loans);
+}
@@ -0,0 +1,99 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Customer;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.repository.CustomerRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+public class CustomerServiceImpl implements CustomerService {
+
+    private final CustomerRepository customerRepository;
+
+    public CustomerServiceImpl(CustomerRepository customerRepository) {
+        this.customerRepository = customerRepository;
+    }
+
+    @Override
+    public Optional<Customer> getById(Integer id) {
+        return customerRepository.findById(id);
+    }
+
+    // not transactional: the insert runs in its own transaction, so a lost race on the email leaves nothing
+    // to roll back and the customer created by the other request is read instead
+    @Override
+    public Customer resolve(String name, String email) {
+        if (name == null && email == null) {
+            return null;
+        }
+        Optional<Customer> customer = find(name, email);
+        if (customer.isPresent()) {
+            return customer.get();
+        }
+        try {
+            return customerRepository.saveAndFlush(Customer.builder().name(name).email(email).build());
+        } catch (DataIntegrityViolationException e) {
+            return find(name, email).orElseThrow(() -> e);
+        }
+    }
+
+    // a lost race on an email fails the caller's transaction as a whole; nothing of it is kept
+    @Override
+    @Transactional
+    public void resolveAll(List<Loan> loans) {
+        Map<String, Customer> byEmail = new HashMap<>();
+        Map<String, Customer> byName = new HashMap<>();
+        List<String> emails = loans.stream().map(Loan::getCustomerEmail).filter(email -> email != null)
+                                   .distinct().collect(Collectors.toList());
+        List<String> names = loans.stream().filter(loan -> loan.getCustomerEmail() == null).map(Loan::getCustomer)
+                                  .filter(name -> name != null).distinct().collect(Collectors.toList());
+        if (!emails.isEmpty()) {
+            customerRepository.findByEmailIn(emails).forEach(customer -> byEmail.put(customer.getEmail(), customer));
+        }
+        if (!names.isEmpty()) {
+            customerRepository.findByNameInAndEmailIsNullOrderById(names)
+                              .forEach(customer -> byName.putIfAbsent(customer.getName(), customer));
+        }
+
+        Map<String, Customer> missingByEmail = new LinkedHashMap<>();
+        Map<String, Customer> missingByName = new LinkedHashMap<>();
+        for (Loan loan : loans) {
+            if (loan.getCustomerEmail() != null && !byEmail.containsKey(loan.getCustomerEmail())) {
+                missingByEmail.computeIfAbsent(loan.getCustomerEmail(),
+                        email -> Customer.builder().name(loan.getCustomer()).email(email).build());
+            } else if (loan.getCustomerEmail() == null && loan.getCustomer() != null && !byName.containsKey(loan.getCustomer())) {
+                missingByName.computeIfAbsent(loan.getCustomer(), name -> Customer.builder().name(name).build());
+            }
+        }
+        if (!missingByEmail.isEmpty() || !missingByName.isEmpty()) {
+            List<Customer> missing = new ArrayList<>(missingByEmail.values());
+            missing.addAll(missingByName.values());
+            // flushed here: loan.id_customer is a plain column, so insert ordering does not put the customers first
+            customerRepository.saveAll(missing);
+            customerRepository.flush();
+            byEmail.putAll(missingByEmail);
+            byName.putAll(missingByName);
+        }
+
+        for (Loan loan : loans) {
+            Customer customer = loan.getCustomerEmail() != null ? byEmail.get(loan.getCustomerEmail())
+                                                                : byName.get(loan.getCustomer());
+            loan.setCustomerId(customer != null ? customer.getId() : null);
+        }
+    }
+
+    private Optional<Customer> find(String name, String email) {
+        return email != null ? customerRepository.findByEmail(email)
+                             : customerRepository.findFirstByNameAndEmailIsNullOrderById(name);
+    }
+}
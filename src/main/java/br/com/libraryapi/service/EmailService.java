@@ -6,5 +6,7 @@ import java.util.List;
 
 @Service
 public interface EmailService {
-    void sendMails(List<String> mailsList, String message);
+    void sendMails(List<String> mailsList, String subject, String message);
+
+    void sendMail(String mail, String subject, String message);
 }
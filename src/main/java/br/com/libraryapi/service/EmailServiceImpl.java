@@ -1,32 +1,53 @@
 package br.com.libraryapi.service;
 
+import br.com.libraryapi.model.MailOutbox;
+import br.com.libraryapi.repository.MailOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
+/**
+ * Mails are not sent here: they are written to the outbox, joining the caller's transaction when there
+ * is one, and delivered later by {@link MailOutboxDispatcher}. Each recipient gets its own message.
+ */
 @Service
 public class EmailServiceImpl implements EmailService{
 
-    @Value("${application.mail.default-remetent}")
-    private String remetent;
-
     @Autowired
-    private JavaMailSender javaMailSender;
+    private MailOutboxRepository mailOutboxRepository;
+
+    public EmailServiceImpl(MailOutboxRepository mailOutboxRepository) {
+        this.mailOutboxRepository = mailOutboxRepository;
+    }
 
     @Override
-    public void sendMails(List<String> mailsList, String message) {
-        String[] mails = mailsList.toArray(new String[mailsList.size()]);
+    @Transactional
+    public void sendMails(List<String> mailsList, String subject, String message) {
+        LocalDateTime now = LocalDateTime.now();
+        mailOutboxRepository.saveAll(mailsList.stream()
+                                              .map(mail -> outbox(mail, subject, message, now))
+                                              .collect(Collectors.toList()));
+    }
 
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        mailMessage.setFrom(remetent);
-        mailMessage.setSubject("Livro com empréstimo atrasado");
-        mailMessage.setText(message);
-        mailMessage.setTo(mails);
+    @Override
+    @Transactional
+    public void sendMail(String mail, String subject, String message) {
+        mailOutboxRepository.save(outbox(mail, subject, message, LocalDateTime.now()));
+    }
 
-        javaMailSender.send(mailMessage);
+    private MailOutbox outbox(String mail, String subject, String message, LocalDateTime now) {
+        return MailOutbox.builder()
+                         .recipient(mail)
+                         .subject(subject)
+                         .message(message)
+                         .status(MailOutbox.Status.PENDING)
+                         .attempts(0)
+                         .createdAt(now)
+                         .nextAttemptAt(now)
+                         .build();
     }
 }
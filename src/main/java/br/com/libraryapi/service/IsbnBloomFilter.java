@@ -0,0 +1,306 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.repository.BookRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Scalable Bloom filter of the registered ISBNs, so lookups of unknown ISBNs (new books, kiosk scans) are
+ * answered without a database round trip. A negative answer is definite; a positive one still goes to the
+ * database.
+ *
+ * The filter is a chain of plain Bloom filters: when the last one reaches its capacity a new one with twice the
+ * capacity and half the false positive rate is added, which keeps the overall rate under {@code fpp}. Deleted
+ * books cannot be removed from a Bloom filter, so it is rebuilt from {@link BookRepository} periodically. Until
+ * the first build every ISBN may exist.
+ *
+ * ISBNs are added once their transaction commits, and under a lock the rebuild takes to swap the chains: an ISBN
+ * committed before a rebuild starts is read by it, one committed later is added to the chain being built. Books
+ * created by other instances are only known after the next rebuild, so the unique index on the ISBN stays the
+ * final check (see {@link BookServiceImpl#isDuplicatedIsbn}).
+ */
+@Component
+@Slf4j
+public class IsbnBloomFilter {
+
+    private final BookRepository bookRepository;
+
+    private final double fpp;
+
+    private final int minCapacity;
+
+    private final int batchSize;
+
+    private volatile Chain current;
+
+    // receives the books added while a rebuild is reading the table
+    private volatile Chain building;
+
+    // held by adds while they go through both chains, and by the rebuild to swap them
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private final Counter negativeCounter;
+
+    private final Counter positiveCounter;
+
+    private final Counter falsePositiveCounter;
+
+    public IsbnBloomFilter(BookRepository bookRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.books.isbn-filter.fpp:0.01}") double fpp,
+                           @Value("${application.books.isbn-filter.min-capacity:100000}") int minCapacity,
+                           @Value("${application.search.rebuild-batch-size:1000}") int batchSize) {
+        this.bookRepository = bookRepository;
+        this.fpp = fpp;
+        this.minCapacity = minCapacity;
+        this.batchSize = batchSize;
+
+        this.negativeCounter = meterRegistry.counter("library.books.isbn-filter.lookups", "result", "negative");
+        this.positiveCounter = meterRegistry.counter("library.books.isbn-filter.lookups", "result", "positive");
+        this.falsePositiveCounter = meterRegistry.counter("library.books.isbn-filter.lookups", "result", "false-positive");
+        Gauge.builder("library.books.isbn-filter.fpp", this, IsbnBloomFilter::expectedFpp)
+             .description("False positive rate expected from the fill of the filter")
+             .tag("type", "expected")
+             .register(meterRegistry);
+        Gauge.builder("library.books.isbn-filter.fpp", this, IsbnBloomFilter::observedFpp)
+             .description("Share of lookups of unknown ISBNs the filter let through to the database")
+             .tag("type", "observed")
+             .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${application.books.isbn-filter.rebuild-ms:3600000}",
+               fixedDelayString = "${application.books.isbn-filter.rebuild-ms:3600000}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Chain chain = new Chain(Math.max(minCapacity, bookRepository.count()));
+        swap(current, chain);
+        long count = 0;
+        Integer after = 0;
+        List<Object[]> batch;
+        do {
+            batch = bookRepository.findIsbnsAfter(after, PageRequest.of(0, batchSize));
+            for (Object[] row : batch) {
+                after = (Integer) row[0];
+                if (row[1] != null) {
+                    chain.add((String) row[1]);
+                }
+            }
+            count += batch.size();
+        } while (batch.size() == batchSize);
+        swap(chain, null);
+        log.info("ISBN filter built with {} books in {} ms", count, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return true only when no book with the ISBN exists; false means the database has to be asked, and the
+     * answer reported with {@link #recordLookup(boolean)}.
+     */
+    public boolean isDefinitelyAbsent(String isbn) {
+        Chain chain = current;
+        if (chain == null || isbn == null || chain.mightContain(isbn)) {
+            return false;
+        }
+        negativeCounter.increment();
+        return true;
+    }
+
+    /**
+     * Counts the database answer for an ISBN the filter let through, to follow the false positive rate.
+     */
+    public void recordLookup(boolean found) {
+        if (current == null) {
+            return;
+        }
+        (found ? positiveCounter : falsePositiveCounter).increment();
+    }
+
+    /**
+     * Adds the ISBN of a new book once the current transaction commits.
+     */
+    public void add(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            swapLock.readLock().lock();
+            try {
+                Chain chain = current;
+                if (chain != null) {
+                    chain.add(isbn);
+                }
+                Chain next = building;
+                if (next != null) {
+                    next.add(isbn);
+                }
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        });
+    }
+
+    private void swap(Chain current, Chain building) {
+        swapLock.writeLock().lock();
+        try {
+            this.current = current;
+            this.building = building;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public double expectedFpp() {
+        Chain chain = current;
+        return chain == null ? 1 : chain.expectedFpp();
+    }
+
+    public double observedFpp() {
+        double falsePositives = falsePositiveCounter.count();
+        double absent = falsePositives + negativeCounter.count();
+        return absent == 0 ? 0 : falsePositives / absent;
+    }
+
+    private final class Chain {
+
+        private final List<Filter> filters = new CopyOnWriteArrayList<>();
+
+        Chain(long capacity) {
+            filters.add(new Filter(capacity, fpp / 2));
+        }
+
+        boolean mightContain(String isbn) {
+            return mightContain(hash(isbn));
+        }
+
+        private boolean mightContain(long[] hash) {
+            for (Filter filter : filters) {
+                if (filter.mightContain(hash)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(String isbn) {
+            long[] hash = hash(isbn);
+            // already present, or a false positive that is harmless to keep
+            if (mightContain(hash)) {
+                return;
+            }
+            Filter last = filters.get(filters.size() - 1);
+            if (last.isFull()) {
+                synchronized (this) {
+                    last = filters.get(filters.size() - 1);
+                    if (last.isFull()) {
+                        last = new Filter(last.capacity * 2, last.fpp / 2);
+                        filters.add(last);
+                    }
+                }
+            }
+            last.add(hash);
+        }
+
+        double expectedFpp() {
+            double none = 1;
+            for (Filter filter : filters) {
+                none *= 1 - filter.expectedFpp();
+            }
+            return 1 - none;
+        }
+    }
+
+    private static final class Filter {
+
+        private final long capacity;
+        private final double fpp;
+        private final long bits;
+        private final int hashes;
+        private final AtomicLongArray words;
+        private final AtomicLong added = new AtomicLong();
+        private final AtomicLong bitsSet = new AtomicLong();
+
+        Filter(long capacity, double fpp) {
+            this.capacity = capacity;
+            this.fpp = fpp;
+            this.bits = Math.max(64, (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        }
+
+        boolean isFull() {
+            return added.get() >= capacity;
+        }
+
+        boolean mightContain(long[] hash) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = index(hash, i);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long[] hash) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = index(hash, i);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                long previous = words.getAndAccumulate(word, mask, (value, m) -> value | m);
+                if ((previous & mask) == 0) {
+                    bitsSet.incrementAndGet();
+                }
+            }
+            added.incrementAndGet();
+        }
+
+        double expectedFpp() {
+            return Math.pow((double) bitsSet.get() / bits, hashes);
+        }
+
+        /**
+         * Double hashing: the i-th probe is h1 + i * h2.
+         */
+        private long index(long[] hash, int i) {
+            return Math.floorMod(hash[0] + i * hash[1], bits);
+        }
+    }
+
+    /**
+     * Two independent 64 bit hashes of the ISBN, from FNV-1a with a final avalanche.
+     */
+    static long[] hash(String isbn) {
+        long h1 = 0xcbf29ce484222325L;
+        long h2 = 0x84222325cbf29ce4L;
+        for (byte b : isbn.getBytes(StandardCharsets.UTF_8)) {
+            h1 = (h1 ^ b) * 0x100000001b3L;
+            h2 = (h2 ^ b) * 0x100000001b3L + 0x9e3779b97f4a7c15L;
+        }
+        return new long[]{mix(h1), mix(h2) | 1};
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,477 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of loan checkouts, returns and reopenings, enabled with
+ * {@code application.loans.journal.enabled=true}.
+ *
+ * Events are recorded after their transaction commits (see {@link AfterCommit}) as fixed size binary records
+ * written into a memory-mapped segment file, so recording one is a copy into the page cache and never waits on
+ * the disk. The segment is forced to disk every {@code fsync-ms} when something was written, so a crash of the
+ * machine loses at most the events of that interval. A segment that is full is forced and a new one started,
+ * named after the sequence of its first event.
+ *
+ * The journal is not part of the loan transaction: an event that cannot be written is logged and counted in
+ * {@code library.loans.journal.failures}, never failing the loan change that already committed, and a crash
+ * between the commit and the append loses that event. It is an audit trail, not the source of truth.
+ *
+ * {@link #replay} reads the events in order, e.g. to rebuild {@link LoanJournalProjections}. Every record
+ * carries a checksum, and reading a segment stops at the first record that is empty or does not match it, which
+ * is where a crash in the middle of a write leaves the end of the journal.
+ *
+ * The whole history is kept by default. Setting {@code compact-min-segments} makes {@link #compact()} merge the
+ * closed segments into one that keeps only the latest event of every loan once there are that many of them,
+ * trading the history for disk space.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "application.loans.journal.enabled", havingValue = "true")
+public class LoanJournal {
+
+    static final int HEADER_BYTES = 8;
+
+    // type, seq, recorded at, loan id, book id, customer id, loan date and checksum
+    static final int RECORD_BYTES = 1 + 8 + 8 + 4 + 4 + 4 + 8 + 4;
+
+    private static final int CHECKED_BYTES = RECORD_BYTES - 4;
+
+    private static final int MAGIC = 0x4c4a524e;
+
+    private static final int VERSION = 1;
+
+    private static final String PREFIX = "loans-";
+
+    private static final String SUFFIX = ".journal";
+
+    private static final LoanEvent.Type[] TYPES = LoanEvent.Type.values();
+
+    private final Path directory;
+
+    private final int segmentBytes;
+
+    private final int compactMinSegments;
+
+    // segment files by the sequence of their first event
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+
+    // held by readers while they go through the segments, and by compaction while it replaces them
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+
+    private final ReentrantLock compacting = new ReentrantLock();
+
+    // the fields below are guarded by this, except the volatile ones read by readers and the flusher
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+
+    private final CRC32C checksum = new CRC32C();
+
+    private MappedByteBuffer active;
+
+    private volatile long activeBase;
+
+    private int position;
+
+    private long lastSeq;
+
+    // last event readers may see; later ones may still be in the middle of being written
+    private volatile long published;
+
+    private volatile boolean dirty;
+
+    private final Counter eventsCounter;
+
+    private final Timer fsyncTimer;
+
+    private final Counter failuresCounter;
+
+    public LoanJournal(MeterRegistry meterRegistry,
+                       @Value("${application.loans.journal.dir:data/journal}") String directory,
+                       @Value("${application.loans.journal.segment-bytes:67108864}") int segmentBytes,
+                       @Value("${application.loans.journal.compact-min-segments:0}") int compactMinSegments) {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.compactMinSegments = compactMinSegments;
+
+        this.eventsCounter = meterRegistry.counter("library.loans.journal.events");
+        this.fsyncTimer = meterRegistry.timer("library.loans.journal.fsync");
+        this.failuresCounter = meterRegistry.counter("library.loans.journal.failures");
+        Gauge.builder("library.loans.journal.segments", segments, Map::size)
+             .description("Segment files of the loan journal")
+             .register(meterRegistry);
+    }
+
+    /**
+     * Finds the end of the journal: the first empty or damaged record of the last segment, which the next event
+     * overwrites.
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(LoanJournal::isSegment).forEach(path -> segments.put(baseOf(path), path));
+        }
+        if (segments.isEmpty()) {
+            roll(1);
+        } else {
+            Map.Entry<Long, Path> last = segments.lastEntry();
+            activeBase = last.getKey();
+            active = map(last.getValue(), FileChannel.MapMode.READ_WRITE, segmentBytes);
+            checkHeader(active, last.getValue());
+            position = HEADER_BYTES;
+            lastSeq = activeBase - 1;
+            LoanEvent event;
+            while (position + RECORD_BYTES <= active.capacity() && (event = decode(active, position)) != null) {
+                lastSeq = event.getSeq();
+                position += RECORD_BYTES;
+            }
+        }
+        published = lastSeq;
+        log.info("Loan journal opened in {} with {} segments, last event {}", directory, segments.size(), lastSeq);
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    public void checkedOut(Loan loan) {
+        append(LoanEvent.Type.CHECKOUT, loan);
+    }
+
+    public void returned(Loan loan) {
+        append(LoanEvent.Type.RETURN, loan);
+    }
+
+    public void reopened(Loan loan) {
+        append(LoanEvent.Type.REOPEN, loan);
+    }
+
+    private void append(LoanEvent.Type type, Loan loan) {
+        LoanEvent event = LoanEvent.builder()
+                                   .type(type)
+                                   .loanId(loan.getId())
+                                   .bookId(loan.getBook().getId())
+                                   .customerId(loan.getCustomerId())
+                                   .loanDate(loan.getLoanDate())
+                                   .build();
+        AfterCommit.run(() -> {
+            try {
+                write(event);
+            } catch (RuntimeException e) {
+                failuresCounter.increment();
+                log.error("Could not record {} of loan {} in the journal", type, loan.getId(), e);
+            }
+        });
+    }
+
+    private synchronized void write(LoanEvent event) {
+        if (position + RECORD_BYTES > active.capacity()) {
+            try {
+                roll(lastSeq + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        event.setSeq(lastSeq + 1);
+        event.setRecordedAt(Instant.now());
+        encode(event);
+        for (int i = 0; i < RECORD_BYTES; i++) {
+            active.put(position + i, record.get(i));
+        }
+        position += RECORD_BYTES;
+        lastSeq = event.getSeq();
+        published = lastSeq;
+        dirty = true;
+        eventsCounter.increment();
+    }
+
+    /**
+     * Forces the written events of the current segment to disk, if there are any.
+     */
+    @Scheduled(fixedDelayString = "${application.loans.journal.fsync-ms:100}")
+    public void flush() {
+        if (!dirty) {
+            return;
+        }
+        MappedByteBuffer segment;
+        synchronized (this) {
+            segment = active;
+            dirty = false;
+        }
+        fsyncTimer.record(() -> { segment.force(); });
+    }
+
+    /**
+     * Hands every event after {@code afterSeq} to the consumer, in order.
+     *
+     * @return the sequence of the last event handed over, or {@code afterSeq} when there was none.
+     */
+    public long replay(long afterSeq, Consumer<LoanEvent> consumer) {
+        return scan(afterSeq, event -> {
+            consumer.accept(event);
+            return true;
+        });
+    }
+
+    /**
+     * @return up to {@code size} events after {@code afterSeq}, in order.
+     */
+    public List<LoanEvent> read(long afterSeq, int size) {
+        List<LoanEvent> events = new ArrayList<>(Math.min(size, 1024));
+        if (size > 0) {
+            scan(afterSeq, event -> {
+                events.add(event);
+                return events.size() < size;
+            });
+        }
+        return events;
+    }
+
+    public long lastSeq() {
+        return published;
+    }
+
+    private long scan(long afterSeq, Predicate<LoanEvent> consumer) {
+        long limit = published;
+        long last = afterSeq;
+        segmentsLock.readLock().lock();
+        try {
+            Long first = segments.floorKey(afterSeq + 1);
+            for (Path path : segments.tailMap(first != null ? first : Long.MIN_VALUE, true).values()) {
+                ByteBuffer segment = map(path, FileChannel.MapMode.READ_ONLY, 0);
+                for (int offset = HEADER_BYTES; offset + RECORD_BYTES <= segment.capacity(); offset += RECORD_BYTES) {
+                    LoanEvent event = decode(segment, offset);
+                    if (event == null || event.getSeq() > limit) {
+                        break;
+                    }
+                    // a compaction interrupted before removing the merged segments leaves events seen already
+                    if (event.getSeq() <= last) {
+                        continue;
+                    }
+                    last = event.getSeq();
+                    if (!consumer.test(event)) {
+                        return last;
+                    }
+                }
+            }
+            return last;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merges the closed segments into the first of them, keeping only the latest event of every loan. The merged
+     * file is written aside and moved into place before the other segments are removed, so an interruption at
+     * any point leaves a readable journal.
+     */
+    @Scheduled(initialDelayString = "${application.loans.journal.compact-ms:3600000}",
+               fixedDelayString = "${application.loans.journal.compact-ms:3600000}")
+    public void compact() throws IOException {
+        if (!compacting.tryLock()) {
+            return;
+        }
+        try {
+            long end = activeBase;
+            NavigableMap<Long, Path> closed = new TreeMap<>(segments.headMap(end, false));
+            if (compactMinSegments <= 0 || closed.size() < compactMinSegments) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Map<Integer, LoanEvent> latest = new HashMap<>();
+            scan(0, event -> {
+                if (event.getSeq() >= end) {
+                    return false;
+                }
+                latest.put(event.getLoanId(), event);
+                return true;
+            });
+            List<LoanEvent> kept = new ArrayList<>(latest.values());
+            kept.sort(Comparator.comparingLong(LoanEvent::getSeq));
+
+            Path target = closed.firstEntry().getValue();
+            Path merged = directory.resolve(target.getFileName() + ".compacting");
+            Files.deleteIfExists(merged);
+            MappedByteBuffer buffer = map(merged, FileChannel.MapMode.READ_WRITE, HEADER_BYTES + kept.size() * RECORD_BYTES);
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+            ByteBuffer encoded = ByteBuffer.allocate(RECORD_BYTES);
+            CRC32C mergedChecksum = new CRC32C();
+            int offset = HEADER_BYTES;
+            for (LoanEvent event : kept) {
+                encode(event, encoded, mergedChecksum);
+                for (int i = 0; i < RECORD_BYTES; i++) {
+                    buffer.put(offset + i, encoded.get(i));
+                }
+                offset += RECORD_BYTES;
+            }
+            buffer.force();
+
+            segmentsLock.writeLock().lock();
+            try {
+                Files.move(merged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                for (Map.Entry<Long, Path> segment : closed.tailMap(closed.firstKey(), false).entrySet()) {
+                    segments.remove(segment.getKey());
+                    Files.delete(segment.getValue());
+                }
+            } finally {
+                segmentsLock.writeLock().unlock();
+            }
+            log.info("Loan journal compacted {} segments before event {} into {} events in {} ms",
+                     closed.size(), end, kept.size(), System.currentTimeMillis() - start);
+        } finally {
+            compacting.unlock();
+        }
+    }
+
+    private void roll(long base) throws IOException {
+        if (active != null) {
+            active.force();
+        }
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, base, SUFFIX));
+        MappedByteBuffer segment = map(path, FileChannel.MapMode.READ_WRITE, segmentBytes);
+        segment.putInt(0, MAGIC).putInt(4, VERSION);
+        active = segment;
+        activeBase = base;
+        position = HEADER_BYTES;
+        segments.put(base, path);
+    }
+
+    private void encode(LoanEvent event) {
+        encode(event, record, checksum);
+    }
+
+    private static ByteBuffer encode(LoanEvent event, ByteBuffer buffer, CRC32C checksum) {
+        buffer.clear();
+        buffer.put((byte) (event.getType().ordinal() + 1))
+              .putLong(event.getSeq())
+              .putLong(event.getRecordedAt().toEpochMilli())
+              .putInt(orZero(event.getLoanId()))
+              .putInt(orZero(event.getBookId()))
+              .putInt(orZero(event.getCustomerId()))
+              .putLong(event.getLoanDate() != null ? event.getLoanDate().toEpochDay() : Long.MIN_VALUE);
+        checksum.reset();
+        checksum.update(buffer.array(), 0, CHECKED_BYTES);
+        buffer.putInt((int) checksum.getValue());
+        return buffer;
+    }
+
+    /**
+     * @return the event at the offset, or null when the record is empty or damaged.
+     */
+    private static LoanEvent decode(ByteBuffer segment, int offset) {
+        byte type = segment.get(offset);
+        if (type <= 0 || type > TYPES.length) {
+            return null;
+        }
+        byte[] bytes = new byte[RECORD_BYTES];
+        for (int i = 0; i < RECORD_BYTES; i++) {
+            bytes[i] = segment.get(offset + i);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes, 0, CHECKED_BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(CHECKED_BYTES) != (int) checksum.getValue()) {
+            return null;
+        }
+        buffer.position(1);
+        long seq = buffer.getLong();
+        long recordedAt = buffer.getLong();
+        int loanId = buffer.getInt();
+        int bookId = buffer.getInt();
+        int customerId = buffer.getInt();
+        long loanDate = buffer.getLong();
+        return LoanEvent.builder()
+                        .seq(seq)
+                        .recordedAt(Instant.ofEpochMilli(recordedAt))
+                        .type(TYPES[type - 1])
+                        .loanId(orNull(loanId))
+                        .bookId(orNull(bookId))
+                        .customerId(orNull(customerId))
+                        .loanDate(loanDate != Long.MIN_VALUE ? LocalDate.ofEpochDay(loanDate) : null)
+                        .build();
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static Integer orNull(int value) {
+        return value != 0 ? value : null;
+    }
+
+    /**
+     * Maps the whole file, growing it to {@code size} bytes first when it is smaller. The mapping stays valid
+     * after the channel is closed.
+     */
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, int size) throws IOException {
+        if (mode == FileChannel.MapMode.READ_ONLY) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(mode, 0, channel.size());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            return channel.map(mode, 0, Math.max(size, channel.size()));
+        }
+    }
+
+    private static void checkHeader(ByteBuffer segment, Path path) {
+        if (segment.getInt(0) == 0) {
+            segment.putInt(0, MAGIC).putInt(4, VERSION);
+        } else if (segment.getInt(0) != MAGIC || segment.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not a loan journal segment: " + path);
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private static long baseOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,101 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.LoanEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Views built by replaying the {@link LoanJournal}: the open loans of every book and the latest loans of every
+ * customer. They are rebuilt from the first event once the application is ready or on demand, and every read
+ * first applies the events recorded since the previous one.
+ *
+ * Events are applied as the state they leave the loan in, so applying one twice, or only the latest event of a
+ * loan (what compaction keeps), gives the same views.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "application.loans.journal.enabled", havingValue = "true")
+public class LoanJournalProjections {
+
+    private final LoanJournal loanJournal;
+
+    private final int historySize;
+
+    // the fields below are guarded by this
+    private long lastSeq;
+
+    // open loan ids and their book
+    private final Map<Integer, Integer> openLoans = new HashMap<>();
+
+    private final Map<Integer, Integer> openLoansByBook = new HashMap<>();
+
+    // latest event of the most recent loans of each customer, by loan id
+    private final Map<Integer, NavigableMap<Integer, LoanEvent>> historyByCustomer = new HashMap<>();
+
+    public LoanJournalProjections(LoanJournal loanJournal,
+                                  @Value("${application.loans.journal.history-size:100}") int historySize) {
+        this.loanJournal = loanJournal;
+        this.historySize = historySize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        lastSeq = 0;
+        openLoans.clear();
+        openLoansByBook.clear();
+        historyByCustomer.clear();
+        catchUp();
+        log.info("Loan journal projections rebuilt up to event {} in {} ms", lastSeq, System.currentTimeMillis() - start);
+    }
+
+    public synchronized int openLoans(Integer bookId) {
+        catchUp();
+        return openLoansByBook.getOrDefault(bookId, 0);
+    }
+
+    /**
+     * @return the latest event of each of the most recent loans of the customer, newest loan first.
+     */
+    public synchronized List<LoanEvent> history(Integer customerId) {
+        catchUp();
+        NavigableMap<Integer, LoanEvent> history = historyByCustomer.get(customerId);
+        return history == null ? new ArrayList<>() : new ArrayList<>(history.descendingMap().values());
+    }
+
+    private void catchUp() {
+        lastSeq = loanJournal.replay(lastSeq, this::apply);
+    }
+
+    private void apply(LoanEvent event) {
+        Integer loanId = event.getLoanId();
+        if (event.getType() == LoanEvent.Type.RETURN) {
+            Integer bookId = openLoans.remove(loanId);
+            if (bookId != null) {
+                openLoansByBook.computeIfPresent(bookId, (id, count) -> count > 1 ? count - 1 : null);
+            }
+        } else if (openLoans.put(loanId, event.getBookId()) == null) {
+            openLoansByBook.merge(event.getBookId(), 1, Integer::sum);
+        }
+
+        if (event.getCustomerId() != null) {
+            NavigableMap<Integer, LoanEvent> history = historyByCustomer.computeIfAbsent(event.getCustomerId(),
+                                                                                         id -> new TreeMap<>());
+            history.put(loanId, event);
+            if (history.size() > historySize) {
+                history.pollFirstEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Loan;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Receipts of checkouts and returns, enabled with {@code application.mail.loans.enabled=true}. They are
+ * written to the mail outbox by {@link LoanServiceImpl} inside the transaction of the loan change, so a
+ * receipt is only ever sent for a change that committed.
+ */
+@Component
+@ConditionalOnProperty(name = "application.mail.loans.enabled", havingValue = "true")
+public class LoanMails {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final EmailService emailService;
+
+    private final String checkoutSubject;
+
+    private final String returnSubject;
+
+    public LoanMails(EmailService emailService,
+                     @Value("${application.mail.loans.checkout-subject:Empréstimo registrado}") String checkoutSubject,
+                     @Value("${application.mail.loans.return-subject:Devolução registrada}") String returnSubject) {
+        this.emailService = emailService;
+        this.checkoutSubject = checkoutSubject;
+        this.returnSubject = returnSubject;
+    }
+
+    public void checkedOut(Loan loan) {
+        send(loan, checkoutSubject, "emprestado em " + format(loan.getLoanDate()));
+    }
+
+    public void returned(Loan loan) {
+        send(loan, returnSubject, "devolvido em " + format(LocalDate.now()));
+    }
+
+    private void send(Loan loan, String subject, String action) {
+        if (loan.getCustomerEmail() == null) {
+            return;
+        }
+        String text = "O livro " + loan.getBook().getTitle() + " (ISBN " + loan.getBook().getIsbn() + ") foi " + action + ".";
+        emailService.sendMail(loan.getCustomerEmail(), subject, text);
+    }
+
+    private static String format(LocalDate date) {
+        return date != null ? date.format(DATE_FORMAT) : "-";
+    }
+}
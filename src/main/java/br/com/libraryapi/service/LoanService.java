@@ -4,6 +4,9 @@ import br.com.libraryapi.api.dto.LoanFilterDTO;
 import br.com.libraryapi.api.resource.BookController;
 import br.com.libraryapi.model.Book;
 import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanCheckout;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -11,19 +14,34 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public interface LoanService {
 
     Loan save(Loan loan);
 
+    // saves the loans in one transaction, resolving the customers of the accepted ones; one outcome per loan,
+    // in order, refused when its book has no copy left
+    List<LoanCheckout> saveAll(List<Loan> loans);
+
     Optional<Loan> getById(Integer id);
 
     Loan update(Loan loan);
 
     Page<Loan> find(LoanFilterDTO filter, Pageable pageable);
 
+    KeysetSlice<Loan> find(LoanFilterDTO filter, Keyset after, Pageable pageable);
+
+    void export(LoanFilterDTO filter, Consumer<Loan> consumer);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    // loans of the customer, newest first; the sort of the pageable is ignored
+    Page<Loan> getLoansByCustomer(Integer customerId, Pageable pageable);
+
     List<Loan> getAllLateLoans();
+
+    // late loans ordered by customer email and id, starting after the given position
+    List<Loan> getLateLoans(String afterCustomerEmail, Integer afterId, int size);
 }
@@ -4,32 +4,140 @@ import br.com.libraryapi.api.dto.LoanFilterDTO;
 import br.com.libraryapi.exception.BussinessException;
 import br.com.libraryapi.model.Book;
 import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanCheckout;
+import br.com.libraryapi.repository.BookRepository;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
 import br.com.libraryapi.repository.LoanRepository;
+import br.com.libraryapi.repository.LoanSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Checkouts and returns are single conditional updates on {@link Book#getAvailableCopies()}: the database
+ * serializes concurrent updates of the same row, so a copy can never be loaned twice and no count over the
+ * loan table is needed.
+ */
 @Service
 public class LoanServiceImpl implements LoanService {
 
+    static final int LOAN_DAYS = 4;
+
     @Autowired
     private LoanRepository loanRepository;
 
-    public LoanServiceImpl(LoanRepository loanRepository) {
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CirculationStats circulationStats;
+
+    @Autowired
+    private CustomerService customerService;
+
+    // only present when the journal is enabled
+    @Autowired(required = false)
+    private LoanJournal loanJournal;
+
+    // only present when loan receipts are enabled; written to the mail outbox in the loan transaction
+    @Autowired(required = false)
+    private LoanMails loanMails;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${application.loans.export.clear-every:500}")
+    private int exportClearEvery = 500;
+
+    public LoanServiceImpl(LoanRepository loanRepository, BookRepository bookRepository, CirculationStats circulationStats,
+                           CustomerService customerService) {
         this.loanRepository = loanRepository;
+        this.bookRepository = bookRepository;
+        this.circulationStats = circulationStats;
+        this.customerService = customerService;
     }
 
+    // a refused checkout or return leaves nothing to undo, so it does not doom a surrounding transaction
+    // (see LoanWriteBatcher)
     @Override
+    @Transactional(noRollbackFor = BussinessException.class)
     public Loan save(Loan loan) {
-        if ( loanRepository.existsByBookAndNotReturned(loan.getBook()) ) {
+        if ( bookRepository.checkoutCopy(loan.getBook().getId()) == 0 ) {
             throw new BussinessException("Book already loaned.");
         }
-        return loanRepository.save(loan);
+        Loan saved = loanRepository.save(loan);
+        circulationStats.loanCreated(saved);
+        if (loanJournal != null) {
+            loanJournal.checkedOut(saved);
+        }
+        if (loanMails != null) {
+            loanMails.checkedOut(saved);
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public List<LoanCheckout> saveAll(List<Loan> loans) {
+        Map<Integer, List<Loan>> loansByBook = new LinkedHashMap<>();
+        loans.forEach(loan -> loansByBook.computeIfAbsent(loan.getBook().getId(), id -> new ArrayList<>()).add(loan));
+        Set<Loan> taken = Collections.newSetFromMap(new IdentityHashMap<>());
+        loansByBook.forEach((bookId, bookLoans) -> taken.addAll(bookLoans.subList(0, checkoutCopies(bookId, bookLoans.size()))));
+        List<Loan> accepted = loans.stream().filter(taken::contains).collect(Collectors.toList());
+        customerService.resolveAll(accepted);
+        loanRepository.saveAll(accepted);
+        accepted.forEach(circulationStats::loanCreated);
+        if (loanJournal != null) {
+            accepted.forEach(loanJournal::checkedOut);
+        }
+        if (loanMails != null) {
+            accepted.forEach(loanMails::checkedOut);
+        }
+        return loans.stream()
+                    .map(loan -> new LoanCheckout(loan, taken.contains(loan)))
+                    .collect(Collectors.toList());
+    }
+
+    /**
+     * Takes up to {@code count} copies of the book with one update; when fewer are left, takes the ones that are,
+     * the first loans of the book in the request getting them.
+     *
+     * @return the number of copies taken.
+     */
+    private int checkoutCopies(Integer bookId, int count) {
+        if (bookRepository.checkoutCopies(bookId, count) == 1) {
+            return count;
+        }
+        while (count > 1) {
+            Integer available = bookRepository.findAvailableCopies(bookId);
+            count = Math.min(count - 1, available == null ? 0 : available);
+            if (count == 0 || bookRepository.checkoutCopies(bookId, count) == 1) {
+                return count;
+            }
+        }
+        return 0;
     }
 
     @Override
@@ -38,24 +146,103 @@ public class LoanServiceImpl implements LoanService {
     }
 
     @Override
+    @Transactional(noRollbackFor = BussinessException.class)
     public Loan update(Loan loan) {
+        // only the request that actually flips the flag moves the copy counter, so repeated returns are harmless
+        if (Boolean.TRUE.equals(loan.getReturned())) {
+            if (loanRepository.markReturned(loan.getId()) == 1) {
+                bookRepository.returnCopy(loan.getBook().getId());
+                circulationStats.loanReturned(loan);
+                if (loanJournal != null) {
+                    loanJournal.returned(loan);
+                }
+                if (loanMails != null) {
+                    loanMails.returned(loan);
+                }
+            }
+        } else if (loanRepository.markNotReturned(loan.getId()) == 1) {
+            if (bookRepository.checkoutCopy(loan.getBook().getId()) == 0) {
+                loanRepository.markReturned(loan.getId());
+                throw new BussinessException("Book already loaned.");
+            }
+            circulationStats.loanReopened(loan);
+            if (loanJournal != null) {
+                loanJournal.reopened(loan);
+            }
+        }
         return loanRepository.save(loan);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDTO filter, Pageable pageable) {
-        return loanRepository.findByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable);
+        return loanRepository.findAll(filterOf(filter), pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<Loan> find(LoanFilterDTO filter, Keyset after, Pageable pageable) {
+        return loanRepository.findSlice(filterOf(filter), after, pageable.getSort(), pageable.getPageSize());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void export(LoanFilterDTO filter, Consumer<Loan> consumer) {
+        try (Stream<Loan> loans = loanRepository.stream(filterOf(filter))) {
+            int exported = 0;
+            for (Loan loan : (Iterable<Loan>) loans::iterator) {
+                consumer.accept(loan);
+                if (++exported % exportClearEvery == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns "loans of the book with the isbn or of the customer" into lookups on one index each: the isbn is
+     * resolved to the book id first, and when both are given each side is a subquery on its own index.
+     */
+    private Specification<Loan> filterOf(LoanFilterDTO filter) {
+        Integer bookId = filter.getIsbn() == null ? null : bookRepository.findIdByIsbn(filter.getIsbn()).orElse(null);
+        String customer = filter.getCustomer();
+        if (bookId == null && customer == null) {
+            return LoanSpecifications.none();
+        }
+        if (customer == null) {
+            return LoanSpecifications.byBookId(bookId);
+        }
+        if (bookId == null) {
+            return LoanSpecifications.byCustomer(customer);
+        }
+        return LoanSpecifications.byBookIdOrCustomer(bookId, customer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Loan> getLoansByCustomer(Integer customerId, Pageable pageable) {
+        // always newest first, the order of the (id_customer, loan_date) index
+        return loanRepository.findByCustomerIdOrderByLoanDateDescIdDesc(
+                customerId, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
         return loanRepository.findByBook(book, pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LOAN_DAYS);
         return loanRepository.findByLoanDateLessThanAnNotReturned(threeDaysAgo);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Loan> getLateLoans(String afterCustomerEmail, Integer afterId, int size) {
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LOAN_DAYS);
+        return loanRepository.findLateLoansAfter(threeDaysAgo, afterCustomerEmail, afterId, PageRequest.of(0, size));
+    }
 }
@@ -0,0 +1,238 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.exception.BussinessException;
+import br.com.libraryapi.model.Loan;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for loan checkouts and returns. Request threads queue their operation and wait; writer threads
+ * take whatever is queued, up to {@code max-batch-size} operations or {@code max-linger-ms} after the first
+ * one, and run it all in a single transaction, so a burst costs one connection checkout and one commit per
+ * batch instead of per request.
+ *
+ * Refused operations ("Book already loaned.") do not doom the batch and are reported to their own caller. Any
+ * other failure rolls the batch back and its operations are retried one transaction each, so one bad
+ * operation never fails the others.
+ *
+ * Callers wait at most {@code timeout-ms} for their write and get a 503 after that; an operation that timed out
+ * before a writer took it is dropped, one already taken may still be committed.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "application.loans.group-commit.enabled", havingValue = "true")
+public class LoanWriteBatcher {
+
+    private final LoanService loanService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxBatchSize;
+
+    private final int writerCount;
+
+    private final long maxLingerNanos;
+
+    private final long timeoutMillis;
+
+    private final BlockingQueue<Operation> queue;
+
+    private final List<Thread> writers = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    public LoanWriteBatcher(LoanService loanService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${application.loans.group-commit.max-batch-size:64}") int maxBatchSize,
+                            @Value("${application.loans.group-commit.max-linger-ms:5}") long maxLingerMillis,
+                            @Value("${application.loans.group-commit.writers:2}") int writerCount,
+                            @Value("${application.loans.group-commit.queue-capacity:10000}") int queueCapacity,
+                            @Value("${application.loans.group-commit.timeout-ms:10000}") long timeoutMillis) {
+        this.loanService = loanService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.writerCount = writerCount;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 1; i <= writerCount; i++) {
+            Thread writer = new Thread(this::drain, "loan-group-commit-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+    }
+
+    /**
+     * Same contract as {@link LoanService#save(Loan)}, committed together with concurrent calls.
+     */
+    public Loan save(Loan loan) {
+        return submit(new Operation(Kind.SAVE, loan));
+    }
+
+    /**
+     * Same contract as {@link LoanService#update(Loan)}, committed together with concurrent calls.
+     */
+    public Loan update(Loan loan) {
+        return submit(new Operation(Kind.UPDATE, loan));
+    }
+
+    private Loan submit(Operation operation) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            if (!queue.offer(operation, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw timedOut();
+            }
+            return operation.result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            queue.remove(operation);
+            throw timedOut();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the loan write.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private ResponseStatusException timedOut() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Loan write timed out, try again later.");
+    }
+
+    private void drain() {
+        List<Operation> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    Operation next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(operation -> operation.result.completeExceptionally(e));
+                return;
+            } catch (Throwable e) {
+                // an Error out of a batch must neither kill the writer nor leave its callers waiting
+                log.error("Group commit of {} loan writes failed", batch.size(), e);
+                batch.forEach(operation -> operation.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Operation> batch) {
+        try {
+            transactionTemplate.execute(status -> {
+                batch.forEach(Operation::run);
+                return null;
+            });
+            batch.forEach(Operation::complete);
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} loan writes failed, writing them one by one", batch.size(), e);
+            for (Operation operation : batch) {
+                operation.reset();
+                try {
+                    transactionTemplate.execute(status -> {
+                        operation.run();
+                        return null;
+                    });
+                    operation.complete();
+                } catch (RuntimeException single) {
+                    operation.result.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writers.forEach(Thread::interrupt);
+        List<Operation> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(operation -> operation.result.completeExceptionally(
+                new IllegalStateException("Application is shutting down.")));
+    }
+
+    private final class Operation {
+
+        private final Kind kind;
+        private final Loan loan;
+        private final CompletableFuture<Loan> result = new CompletableFuture<>();
+        private Loan written;
+        private BussinessException refused;
+
+        Operation(Kind kind, Loan loan) {
+            this.kind = kind;
+            this.loan = loan;
+        }
+
+        void run() {
+            try {
+                written = kind == Kind.SAVE ? loanService.save(loan) : loanService.update(loan);
+            } catch (BussinessException e) {
+                refused = e;
+            }
+        }
+
+        /**
+         * Called once the transaction committed: only then is the outcome final.
+         */
+        void complete() {
+            if (refused != null) {
+                result.completeExceptionally(refused);
+            } else {
+                result.complete(written);
+            }
+        }
+
+        /**
+         * Forgets the outcome of a rolled back attempt, including the id a rolled back insert assigned.
+         */
+        void reset() {
+            if (kind == Kind.SAVE) {
+                loan.setId(null);
+            }
+            written = null;
+            refused = null;
+        }
+    }
+
+    private enum Kind {
+        SAVE, UPDATE
+    }
+}
@@ -0,0 +1,157 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.MailOutbox;
+import br.com.libraryapi.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains the mail outbox in the background. Due messages are sent in batches over one SMTP connection and
+ * marked as sent afterwards, so a crash in between sends them again: delivery is at least once. Failed
+ * messages are retried with exponential backoff until {@code max-attempts}, then left as {@code FAILED}.
+ */
+@Component
+@Slf4j
+public class MailOutboxDispatcher {
+
+    private final MailOutboxRepository mailOutboxRepository;
+
+    private final JavaMailSender javaMailSender;
+
+    private final String remetent;
+
+    private final int batchSize;
+
+    private final int maxAttempts;
+
+    private final long backoffSeconds;
+
+    private final long maxBackoffSeconds;
+
+    private final Counter sentCounter;
+
+    private final Counter retriedCounter;
+
+    private final Counter failedCounter;
+
+    public MailOutboxDispatcher(MailOutboxRepository mailOutboxRepository,
+                                JavaMailSender javaMailSender,
+                                MeterRegistry meterRegistry,
+                                @Value("${application.mail.default-remetent}") String remetent,
+                                @Value("${application.mail.outbox.batch-size:50}") int batchSize,
+                                @Value("${application.mail.outbox.max-attempts:8}") int maxAttempts,
+                                @Value("${application.mail.outbox.backoff-seconds:30}") long backoffSeconds,
+                                @Value("${application.mail.outbox.max-backoff-seconds:3600}") long maxBackoffSeconds) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.javaMailSender = javaMailSender;
+        this.remetent = remetent;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffSeconds = backoffSeconds;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+
+        this.sentCounter = meterRegistry.counter("library.mail.outbox.dispatched", "result", "sent");
+        this.retriedCounter = meterRegistry.counter("library.mail.outbox.dispatched", "result", "retry");
+        this.failedCounter = meterRegistry.counter("library.mail.outbox.dispatched", "result", "failed");
+        Gauge.builder("library.mail.outbox.pending", mailOutboxRepository,
+                      repository -> repository.countByStatus(MailOutbox.Status.PENDING))
+             .description("Mails waiting in the outbox")
+             .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.mail.outbox.poll-interval-ms:5000}")
+    public void dispatch() {
+        List<MailOutbox> batch;
+        do {
+            batch = mailOutboxRepository.findDue(MailOutbox.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private void send(List<MailOutbox> batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = toMessage(batch.get(i));
+        }
+
+        Map<Object, Exception> failures = Collections.emptyMap();
+        MailException batchFailure = null;
+        try {
+            javaMailSender.send(messages);
+        } catch (MailSendException e) {
+            // failed messages are reported one by one; without them the whole batch failed (e.g. no connection)
+            if (e.getFailedMessages().isEmpty()) {
+                batchFailure = e;
+            } else {
+                failures = new IdentityHashMap<>(e.getFailedMessages());
+            }
+        } catch (MailException e) {
+            batchFailure = e;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < messages.length; i++) {
+            MailOutbox mail = batch.get(i);
+            Exception failure = batchFailure != null ? batchFailure : failures.get(messages[i]);
+            if (failure == null) {
+                mail.setStatus(MailOutbox.Status.SENT);
+                mail.setSentAt(now);
+                mail.setAttempts(mail.getAttempts() + 1);
+                sentCounter.increment();
+            } else {
+                fail(mail, failure, now);
+            }
+        }
+        mailOutboxRepository.saveAll(batch);
+    }
+
+    private void fail(MailOutbox mail, Exception failure, LocalDateTime now) {
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        mail.setLastError(truncate(String.valueOf(failure.getMessage())));
+        if (attempts >= maxAttempts) {
+            mail.setStatus(MailOutbox.Status.FAILED);
+            failedCounter.increment();
+            log.warn("Giving up on mail {} to {} after {} attempts", mail.getId(), mail.getRecipient(), attempts);
+            return;
+        }
+        mail.setNextAttemptAt(now.plusSeconds(backoff(attempts)));
+        retriedCounter.increment();
+    }
+
+    private long backoff(int attempts) {
+        long delay = backoffSeconds << Math.min(attempts - 1, 30);
+        return Math.min(delay, maxBackoffSeconds);
+    }
+
+    private SimpleMailMessage toMessage(MailOutbox mail) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(remetent);
+        message.setTo(mail.getRecipient());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getMessage());
+        return message;
+    }
+
+    private static String truncate(String error) {
+        return error.length() > 500 ? error.substring(0, 500) : error;
+    }
+}
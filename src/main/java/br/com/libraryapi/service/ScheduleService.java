@@ -1,32 +1,208 @@
 package br.com.libraryapi.service;
 
+import br.com.libraryapi.config.VirtualThreads;
 import br.com.libraryapi.model.Loan;
-import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Notifies customers with late loans. Overdue loans are read in chunks ordered by customer email and id,
+ * so only one chunk is in memory at a time, and every customer gets a single message listing all of
+ * their late books. Messages are queued in the mail outbox by a bounded pool; when its queue is full the
+ * job thread queues the message itself, which throttles the reading of new chunks. Delivery, its retries
+ * and its metrics are up to {@link MailOutboxDispatcher}. Once the pool is shut down the job stops with a
+ * {@link RejectedExecutionException} instead of waiting for messages that will never be queued.
+ */
 @Service
+@Slf4j
 public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
 
-    @Value("${application.mail.lateLoans.message}")
-    private String message;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
-    @Autowired
-    private LoanService loanService;
+    private final LoanService loanService;
 
-    private EmailService emailService;
+    private final EmailService emailService;
+
+    private final String message;
+
+    private final String subject;
+
+    private final int chunkSize;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Counter queuedCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter loansCounter;
+
+    private final Timer jobTimer;
+
+    public ScheduleService(LoanService loanService,
+                           EmailService emailService,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.mail.lateLoans.message}") String message,
+                           @Value("${application.mail.lateLoans.subject:Livro com empréstimo atrasado}") String subject,
+                           @Value("${application.mail.lateLoans.chunk-size:500}") int chunkSize,
+                           @Value("${application.mail.lateLoans.threads:4}") int threads,
+                           @Value("${application.virtual-threads.enabled:false}") boolean virtualThreads) {
+        this.loanService = loanService;
+        this.emailService = emailService;
+        this.message = message;
+        this.subject = subject;
+        this.chunkSize = chunkSize;
+
+        // with virtual threads the pool still caps the sends in flight, it just stops pinning platform threads
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(threads * 4),
+                                               virtualThreads ? VirtualThreads.factory("late-loan-mail-") : platformThreads(),
+                                               ScheduleService::runOnCaller);
+
+        this.queuedCounter = Counter.builder("library.late-loans.mails")
+                                    .tag("result", "queued")
+                                    .description("Late loan notifications written to the mail outbox")
+                                    .register(meterRegistry);
+        this.failedCounter = Counter.builder("library.late-loans.mails")
+                                    .tag("result", "failed")
+                                    .description("Late loan notifications that could not be written to the mail outbox")
+                                    .register(meterRegistry);
+        this.loansCounter = Counter.builder("library.late-loans.loans")
+                                   .description("Late loans processed by the notification job")
+                                   .register(meterRegistry);
+        this.jobTimer = Timer.builder("library.late-loans.job")
+                             .description("Duration of the late loan notification job")
+                             .register(meterRegistry);
+    }
+
+    private static ThreadFactory platformThreads() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "late-loan-mail-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Like {@link ThreadPoolExecutor.CallerRunsPolicy}, but refuses the task after shutdown instead of silently
+     * dropping it.
+     */
+    private static void runOnCaller(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Late loan notifications are shutting down.");
+        }
+        task.run();
+    }
 
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendMailToLateLoans() {
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
-        List<String> mailsList = allLateLoans.stream().map(loan -> loan.getCustomerEmail()).collect(Collectors.toList());
+        jobTimer.record(this::notifyLateLoans);
+    }
+
+    private void notifyLateLoans() {
+        // the job thread is registered as a party, so awaiting completion cannot succeed before every
+        // message has been submitted
+        Phaser pending = new Phaser(1);
+        List<Loan> customerLoans = new ArrayList<>();
+        String afterEmail = "";
+        Integer afterId = 0;
+        int customers = 0;
+
+        List<Loan> chunk;
+        do {
+            chunk = loanService.getLateLoans(afterEmail, afterId, chunkSize);
+            for (Loan loan : chunk) {
+                // a customer's loans may span two chunks, so the group is only closed when the email changes
+                if (!customerLoans.isEmpty() && !customerLoans.get(0).getCustomerEmail().equals(loan.getCustomerEmail())) {
+                    submit(customerLoans, pending);
+                    customers++;
+                    customerLoans = new ArrayList<>();
+                }
+                customerLoans.add(loan);
+            }
+            loansCounter.increment(chunk.size());
+            if (!chunk.isEmpty()) {
+                Loan last = chunk.get(chunk.size() - 1);
+                afterEmail = last.getCustomerEmail();
+                afterId = last.getId();
+            }
+        } while (chunk.size() == chunkSize);
+
+        if (!customerLoans.isEmpty()) {
+            submit(customerLoans, pending);
+            customers++;
+        }
+        pending.arriveAndAwaitAdvance();
+        log.info("Late loan notifications queued for {} customers", customers);
+    }
+
+    private void submit(List<Loan> loans, Phaser pending) {
+        String mail = loans.get(0).getCustomerEmail();
+        String text = buildMessage(loans);
+        pending.register();
+        try {
+            executor.execute(() -> {
+                try {
+                    queue(mail, text);
+                } finally {
+                    pending.arriveAndDeregister();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.arriveAndDeregister();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the message to the outbox; a failure here is a database error, which the next run of the job
+     * repeats, so it is not retried.
+     */
+    private void queue(String mail, String text) {
+        try {
+            emailService.sendMail(mail, subject, text);
+            queuedCounter.increment();
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            log.warn("Could not queue the late loan notification of {}", mail, e);
+        }
+    }
+
+    private String buildMessage(List<Loan> loans) {
+        StringBuilder text = new StringBuilder(message).append("\n");
+        for (Loan loan : loans) {
+            text.append("\n- ")
+                .append(loan.getBook().getTitle())
+                .append(" (ISBN ")
+                .append(loan.getBook().getIsbn())
+                .append("), emprestado em ")
+                .append(loan.getLoanDate().format(DATE_FORMAT));
+        }
+        return text.toString();
+    }
 
-        emailService.sendMails(mailsList, message);
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
     }
 }
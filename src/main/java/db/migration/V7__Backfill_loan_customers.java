@@ -0,0 +1,141 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates the customers of the existing loans and fills {@code loan.id_customer}, in batches of loans ordered by
+ * id. Every batch is committed on its own, so the loan table is never locked as a whole and an interrupted run
+ * picks up the loans still without customer.
+ *
+ * Loans with the same email share one customer; loans without email share one by name, like
+ * {@code CustomerServiceImpl}.
+ *
+ * Customer ids are taken from {@code customer_seq} in blocks of {@link #ALLOCATION_SIZE}, the way Hibernate's
+ * pooled optimizer reads it for {@code Customer}: each sequence value is the upper end of a block of ids, and
+ * the first value of the sequence starts a block ending at the next one. The application and the backfill never
+ * hand out the same id, and the backfill does not burn a whole block per customer.
+ */
+public class V7__Backfill_loan_customers extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // increment of customer_seq and allocationSize of Customer
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final int INITIAL_VALUE = 1;
+
+    private int nextCustomerId;
+
+    private int lastCustomerId = -1;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement loans = connection.prepareStatement(
+                     "select id, customer, customer_email from loan " +
+                     "where id > ? and id_customer is null order by id limit " + BATCH_SIZE);
+             PreparedStatement byEmail = connection.prepareStatement("select id from customer where email = ?");
+             PreparedStatement byName = connection.prepareStatement(
+                     "select min(id) from customer where email is null and name = ?");
+             PreparedStatement nextId = connection.prepareStatement("select next value for customer_seq");
+             PreparedStatement insert = connection.prepareStatement(
+                     "insert into customer (id, name, email) values (?, ?, ?)");
+             PreparedStatement update = connection.prepareStatement(
+                     "update loan set id_customer = ? where id = ?")) {
+            int after = 0;
+            int rows;
+            do {
+                rows = 0;
+                // customers of this batch, by email or name, so each one is looked up once per batch
+                Map<String, Integer> customers = new HashMap<>();
+                loans.setInt(1, after);
+                try (ResultSet result = loans.executeQuery()) {
+                    while (result.next()) {
+                        rows++;
+                        after = result.getInt(1);
+                        String name = result.getString(2);
+                        String email = result.getString(3);
+                        if (name == null && email == null) {
+                            continue;
+                        }
+                        String key = email != null ? "e:" + email : "n:" + name;
+                        Integer customerId = customers.get(key);
+                        if (customerId == null) {
+                            customerId = email != null ? find(byEmail, email) : find(byName, name);
+                            if (customerId == null) {
+                                customerId = create(nextId, insert, name, email);
+                            }
+                            customers.put(key, customerId);
+                        }
+                        update.setInt(1, customerId);
+                        update.setInt(2, after);
+                        update.addBatch();
+                    }
+                }
+                update.executeBatch();
+                connection.commit();
+            } while (rows == BATCH_SIZE);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private Integer find(PreparedStatement statement, String value) throws SQLException {
+        statement.setString(1, value);
+        try (ResultSet result = statement.executeQuery()) {
+            if (!result.next()) {
+                return null;
+            }
+            int id = result.getInt(1);
+            return result.wasNull() ? null : id;
+        }
+    }
+
+    private Integer create(PreparedStatement nextId, PreparedStatement insert, String name, String email) throws SQLException {
+        int id = nextCustomerId(nextId);
+        insert.setInt(1, id);
+        insert.setString(2, name);
+        insert.setString(3, email);
+        insert.executeUpdate();
+        return id;
+    }
+
+    private int nextCustomerId(PreparedStatement nextId) throws SQLException {
+        if (nextCustomerId > lastCustomerId) {
+            int value = nextValue(nextId);
+            if (value == INITIAL_VALUE) {
+                nextCustomerId = value;
+                lastCustomerId = nextValue(nextId);
+            } else {
+                nextCustomerId = value - ALLOCATION_SIZE + 1;
+                lastCustomerId = value;
+            }
+        }
+        return nextCustomerId++;
+    }
+
+    private int nextValue(PreparedStatement nextId) throws SQLException {
+        try (ResultSet result = nextId.executeQuery()) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+-- Schema previously generated by hibernate (ddl-auto), now versioned. Hibernate only validates it.
+
+create sequence book_seq start with 1 increment by 50;
+create sequence loan_seq start with 1 increment by 50;
+create sequence mail_outbox_seq start with 1 increment by 50;
+
+create table book (
+    id               integer      not null,
+    title            varchar(255),
+    author           varchar(255),
+    isbn             varchar(255),
+    copies           integer      not null,
+    available_copies integer      not null,
+    constraint pk_book primary key (id)
+);
+
+create table loan (
+    id             integer      not null,
+    customer       varchar(100),
+    customer_email varchar(255),
+    id_book        integer,
+    loan_date      date,
+    returned       boolean,
+    constraint pk_loan primary key (id),
+    constraint fk_loan_book foreign key (id_book) references book (id)
+);
+
+create table mail_outbox (
+    id              integer       not null,
+    recipient       varchar(255)  not null,
+    subject         varchar(255)  not null,
+    message         varchar(8000) not null,
+    status          varchar(10)   not null,
+    attempts        integer       not null,
+    next_attempt_at timestamp     not null,
+    created_at      timestamp     not null,
+    sent_at         timestamp,
+    last_error      varchar(500),
+    constraint pk_mail_outbox primary key (id)
+);
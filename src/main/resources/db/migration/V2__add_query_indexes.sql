@@ -0,0 +1,24 @@
+-- Indexes behind the repository queries. H2 has no partial indexes, so "open loan" lookups use composite
+-- indexes with returned as the second column instead of a "where returned is not true" predicate.
+
+-- BookRepository.findByIsbn, existsByIsbn, findByIsbnIn, findIsbnsIn and the isbn side of the loan filters
+create unique index ux_book_isbn on book (isbn);
+
+-- LoanRepository.existsByBookAndNotReturned, findByBook
+create index ix_loan_book_returned on loan (id_book, returned);
+
+-- LoanRepository.findByLoanDateLessThanAnNotReturned, findLateLoansAfter
+create index ix_loan_date_returned on loan (loan_date, returned);
+
+-- keyset order of LoanRepository.findLateLoansAfter
+create index ix_loan_customer_email on loan (customer_email, id);
+
+-- customer side of LoanRepository.findByBookIsbnOrCustomer and the loan filters
+create index ix_loan_customer on loan (customer);
+
+-- MailOutboxRepository.findDue, countByStatus
+create index ix_mail_outbox_status_next on mail_outbox (status, next_attempt_at);
+
+-- keyset pagination of books sorted by title or author (BookRepositoryCustom.findSlice)
+create index ix_book_title on book (title, id);
+create index ix_book_author on book (author, id);
@@ -0,0 +1,2 @@
+-- LoanRepository.countReturned, behind the active loans gauge
+create index ix_loan_returned on loan (returned);
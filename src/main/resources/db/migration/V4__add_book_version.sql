@@ -0,0 +1,2 @@
+-- optimistic lock of Book, also used as its ETag
+alter table book add column version integer default 0 not null;
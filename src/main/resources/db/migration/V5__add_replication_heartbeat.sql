@@ -0,0 +1,8 @@
+-- written on the primary by ReplicaHeartbeat and read back from the replica to measure its lag
+create table replication_heartbeat (
+    id   integer not null,
+    beat bigint  not null,
+    constraint pk_replication_heartbeat primary key (id)
+);
+
+insert into replication_heartbeat (id, beat) values (1, 0);
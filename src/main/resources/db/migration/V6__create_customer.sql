@@ -0,0 +1,22 @@
+-- Customers referenced by id from loan. id_customer of the existing loans is filled by V7.
+
+create sequence customer_seq start with 1 increment by 50;
+
+create table customer (
+    id    integer      not null,
+    name  varchar(100),
+    email varchar(255),
+    constraint pk_customer primary key (id)
+);
+
+-- CustomerRepository.findByEmail; also keeps two customers from sharing an email
+create unique index ux_customer_email on customer (email);
+
+-- CustomerRepository.findFirstByNameAndEmailIsNullOrderById
+create index ix_customer_name on customer (name);
+
+alter table loan add column id_customer integer;
+alter table loan add constraint fk_loan_customer foreign key (id_customer) references customer (id);
+
+-- LoanRepository.findByCustomerIdOrderByLoanDateDescIdDesc
+create index ix_loan_customer_date on loan (id_customer, loan_date);
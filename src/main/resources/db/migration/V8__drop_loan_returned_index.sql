@@ -0,0 +1,2 @@
+-- the active loans gauge reads CirculationStats now, nothing filters loans by returned alone
+drop index if exists ix_loan_returned;
@@ -0,0 +1,92 @@
+package br.com.libraryapi.config;
+
+import br.com.libraryapi.exception.BussinessException;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.BookRepository;
+import br.com.libraryapi.service.BookJsonCache;
+import br.com.libraryapi.service.BookSearchIndex;
+import br.com.libraryapi.service.BookService;
+import br.com.libraryapi.service.BookServiceImpl;
+import br.com.libraryapi.service.IsbnBloomFilter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class MetricsAspectTest {
+
+    private PrometheusMeterRegistry meterRegistry;
+
+    private BookRepository bookRepository;
+
+    private BookService bookService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        MetricsAspect aspect = new MetricsAspect(meterRegistry, new BusinessMetrics(meterRegistry));
+
+        bookRepository = Mockito.mock(BookRepository.class);
+        AspectJProxyFactory repositoryProxy = new AspectJProxyFactory(bookRepository);
+        repositoryProxy.addInterface(BookRepository.class);
+        repositoryProxy.addAspect(aspect);
+        BookRepository timedRepository = repositoryProxy.getProxy();
+
+        AspectJProxyFactory serviceProxy = new AspectJProxyFactory(new BookServiceImpl(timedRepository, Mockito.mock(BookSearchIndex.class),
+                                                                                        Mockito.mock(BookJsonCache.class),
+                                                                                        Mockito.mock(IsbnBloomFilter.class)));
+        serviceProxy.addInterface(BookService.class);
+        serviceProxy.addAspect(aspect);
+        bookService = serviceProxy.getProxy();
+    }
+
+    @Test
+    @DisplayName("Deve medir a duração das chamadas de serviço e de repositório por operação.")
+    public void timeServiceAndRepositoryTest() {
+        // execução
+        Optional<Book> book = bookService.getById(11);
+
+        // verificações
+        assertThat(book).isEmpty();
+        Timer service = meterRegistry.get(MetricsAspect.SERVICE_TIMER)
+                                     .tag("operation", "BookService.getById")
+                                     .tag("outcome", "success")
+                                     .timer();
+        Timer repository = meterRegistry.get(MetricsAspect.REPOSITORY_TIMER)
+                                        .tag("operation", "BookRepository.findById")
+                                        .timer();
+        assertThat(service.count()).isEqualTo(1);
+        assertThat(repository.count()).isEqualTo(1);
+        assertThat(meterRegistry.scrape()).contains("library_service_seconds_bucket{exception=\"none\",operation=\"BookService.getById\",outcome=\"success\",le=\"+Inf\",} 1.0");
+    }
+
+    @Test
+    @DisplayName("Deve contar as recusas de negócio e medir a chamada como erro.")
+    public void countBusinessRejectionTest() {
+        // cenário
+        Mockito.when(bookRepository.existsByIsbn("123")).thenReturn(true);
+
+        // execução
+        Throwable exception = catchThrowable(() -> bookService.save(Book.builder().isbn("123").build()));
+
+        // verificações
+        assertThat(exception).isInstanceOf(BussinessException.class);
+        assertThat(meterRegistry.get(BusinessMetrics.REJECTIONS)
+                                .tag("operation", "BookService.save")
+                                .tag("reason", "ISBN já cadastrado.")
+                                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(MetricsAspect.SERVICE_TIMER)
+                                .tag("operation", "BookService.save")
+                                .tag("exception", "BussinessException")
+                                .timer().count()).isEqualTo(1);
+    }
+}
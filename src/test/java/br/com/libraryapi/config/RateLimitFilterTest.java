@@ -0,0 +1,168 @@
+package br.com.libraryapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AtomicLong now;
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        now = new AtomicLong(-TimeUnit.HOURS.toNanos(1));
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getDefaultLimit().setPermitsPerSecond(100);
+        properties.getDefaultLimit().setBurst(100);
+        RateLimitProperties.Limit search = new RateLimitProperties.Limit();
+        search.setMethod("GET");
+        search.setPath("/api/books");
+        search.setPermitsPerSecond(0.5);
+        search.setBurst(2);
+        properties.getEndpoints().add(search);
+        properties.getClientKeys().addAll(Arrays.asList("integration", "other"));
+
+        filter = new RateLimitFilter(properties, new ObjectMapper(), meterRegistry, now::get);
+    }
+
+    @Test
+    @DisplayName("Deve recusar com 429 e Retry-After as requisições além do limite do endpoint.")
+    public void rejectBeyondLimitTest() throws Exception {
+        // execução
+        MockHttpServletResponse first = search("10.0.0.1", null);
+        MockHttpServletResponse second = search("10.0.0.1", null);
+        MockHttpServletResponse third = search("10.0.0.1", null);
+
+        // verificações
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(second.getStatus()).isEqualTo(200);
+        assertThat(third.getStatus()).isEqualTo(429);
+        assertThat(third.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(third.getContentAsString()).contains("Too many requests.");
+        assertThat(meterRegistry.get(RateLimitFilter.METRIC).tag("endpoint", "GET /api/books")
+                                .tag("outcome", "admitted").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(RateLimitFilter.METRIC).tag("endpoint", "GET /api/books")
+                                .tag("outcome", "rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve liberar novas requisições conforme o balde é reabastecido.")
+    public void refillTest() throws Exception {
+        // cenário
+        search("10.0.0.1", null);
+        search("10.0.0.1", null);
+
+        // execução
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        MockHttpServletResponse refilled = search("10.0.0.1", null);
+        MockHttpServletResponse empty = search("10.0.0.1", null);
+
+        // verificações
+        assertThat(refilled.getStatus()).isEqualTo(200);
+        assertThat(empty.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    @DisplayName("Deve limitar cada cliente, pela chave de API ou pelo endereço, em seu próprio balde.")
+    public void bucketPerClientTest() throws Exception {
+        // cenário
+        search("10.0.0.1", "integration");
+        search("10.0.0.1", "integration");
+
+        // execução
+        MockHttpServletResponse sameKey = search("10.0.0.2", "integration");
+        MockHttpServletResponse otherKey = search("10.0.0.1", "other");
+        MockHttpServletResponse noKey = search("10.0.0.1", null);
+
+        // verificações
+        assertThat(sameKey.getStatus()).isEqualTo(429);
+        assertThat(otherKey.getStatus()).isEqualTo(200);
+        assertThat(noKey.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Deve limitar pelo endereço as requisições com chave de API desconhecida.")
+    public void unknownKeyTest() throws Exception {
+        // cenário
+        search("10.0.0.1", "random-1");
+        search("10.0.0.1", "random-2");
+
+        // execução
+        MockHttpServletResponse randomKey = search("10.0.0.1", "random-3");
+        MockHttpServletResponse noKey = search("10.0.0.1", null);
+        MockHttpServletResponse knownKey = search("10.0.0.1", "integration");
+
+        // verificações
+        assertThat(randomKey.getStatus()).isEqualTo(429);
+        assertThat(noKey.getStatus()).isEqualTo(429);
+        assertThat(knownKey.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar o limite padrão às requisições de outros endpoints.")
+    public void defaultLimitTest() throws Exception {
+        // cenário
+        search("10.0.0.1", null);
+        search("10.0.0.1", null);
+
+        // execução
+        MockHttpServletResponse response = request("GET", "/api/books/1", "10.0.0.1", null);
+
+        // verificações
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get(RateLimitFilter.METRIC).tag("endpoint", "/**")
+                                .tag("outcome", "admitted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve descartar os baldes cheios novamente sem perder os que estão em uso.")
+    public void evictIdleTest() throws Exception {
+        // cenário
+        search("10.0.0.1", null);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        search("10.0.0.2", null);
+        search("10.0.0.2", null);
+
+        // execução
+        filter.evictIdle();
+
+        // verificações
+        assertThat(meterRegistry.get(RateLimitFilter.METRIC + ".clients").gauge().value()).isEqualTo(1);
+        assertThat(search("10.0.0.2", null).getStatus()).isEqualTo(429);
+    }
+
+    private MockHttpServletResponse search(String address, String apiKey) throws ServletException, IOException {
+        return request("GET", "/api/books", address, apiKey);
+    }
+
+    private MockHttpServletResponse request(String method, String path, String address, String apiKey)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(address);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,120 @@
+package br.com.libraryapi.config;
+
+import br.com.libraryapi.api.dto.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Two H2 databases stand for the primary and the replica; {@link #replicate()} plays the replication, so
+ * everything written between two calls is replication lag.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "application.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "application.datasource.replica.heartbeat-ms=3600000",
+        "application.datasource.replica.max-lag-ms=600000"
+})
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingTest {
+
+    static String BOOK_API = "/api/books";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ReplicaHeartbeat heartbeat;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replica;
+
+    @BeforeEach
+    public void setUp() {
+        Flyway.configure().dataSource(replica).load().migrate();
+        heartbeat.beat();
+        replicate();
+        heartbeat.beat();
+    }
+
+    @Test
+    @DisplayName("Deve ler do replica e usar o primário com o token de consistência até o replica alcançar a escrita.")
+    public void readYourWritesTest() throws Exception {
+        // cenário
+        BookDTO dto = BookDTO.builder().title("A Identidade Bourne").author("Robert Ludlum").isbn("98765").build();
+        String token = mvc.perform(MockMvcRequestBuilders.post(BOOK_API)
+                                                         .content(new ObjectMapper().writeValueAsString(dto))
+                                                         .contentType(MediaType.APPLICATION_JSON)
+                                                         .accept(MediaType.APPLICATION_JSON))
+                          .andExpect(status().isCreated())
+                          .andExpect(header().exists(ConsistencyTokenFilter.HEADER))
+                          .andReturn()
+                          .getResponse()
+                          .getHeader(ConsistencyTokenFilter.HEADER);
+
+        // execução e verificações: o replica ainda não recebeu o livro
+        mvc.perform(findByIsbn()).andExpect(jsonPath("content", hasSize(0)));
+        mvc.perform(findByIsbn().header(ConsistencyTokenFilter.HEADER, token)).andExpect(jsonPath("content", hasSize(1)));
+
+        // execução e verificações: depois da replicação o replica atende também quem tem o token
+        heartbeat.beat();
+        replicate();
+        heartbeat.beat();
+        assertThat(heartbeat.isCaughtUp(Long.parseLong(token))).isTrue();
+        mvc.perform(findByIsbn()).andExpect(jsonPath("content", hasSize(1)));
+        mvc.perform(findByIsbn().header(ConsistencyTokenFilter.HEADER, token)).andExpect(jsonPath("content", hasSize(1)));
+    }
+
+    private MockHttpServletRequestBuilder findByIsbn() {
+        return MockMvcRequestBuilders.get(BOOK_API)
+                                     .param("isbn", "98765")
+                                     .param("sort", "id")
+                                     .accept(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Copies the books and the heartbeat from the primary to the replica.
+     */
+    private void replicate() {
+        JdbcTemplate from = new JdbcTemplate(primary);
+        JdbcTemplate to = new JdbcTemplate(replica);
+        to.update("delete from book");
+        from.query("select id, title, author, isbn, copies, available_copies, version from book",
+                   (RowCallbackHandler) row -> {
+                       to.update("insert into book (id, title, author, isbn, copies, available_copies, version) "
+                                         + "values (?, ?, ?, ?, ?, ?, ?)",
+                                 row.getInt(1), row.getString(2), row.getString(3), row.getString(4),
+                                 row.getInt(5), row.getInt(6), row.getInt(7));
+                   });
+        to.update("update replication_heartbeat set beat = ? where id = 1",
+                  from.queryForObject("select beat from replication_heartbeat where id = 1", Long.class));
+    }
+}
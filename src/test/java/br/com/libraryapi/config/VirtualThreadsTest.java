@@ -0,0 +1,42 @@
+package br.com.libraryapi.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    @DisplayName("Deve executar tarefas em threads virtuais quando a JDK suportar.")
+    public void perTaskExecutorTest() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        // execução
+        ExecutorService executor = VirtualThreads.perTaskExecutor("test-");
+        Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // verificações
+        assertThat((Boolean) Thread.class.getMethod("isVirtual").invoke(thread)).isTrue();
+        assertThat(thread.getName()).startsWith("test-");
+    }
+
+    @Test
+    @DisplayName("Deve falhar ao pedir threads virtuais em uma JDK sem suporte.")
+    public void unsupportedJdkTest() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        // execução
+        Throwable exception = catchThrowable(() -> VirtualThreads.factory("test-"));
+
+        // verificações
+        assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessageContaining("JDK 21");
+    }
+}
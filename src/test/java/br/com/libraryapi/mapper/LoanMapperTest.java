@@ -0,0 +1,69 @@
+package br.com.libraryapi.mapper;
+
+import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.api.dto.LoanDTO;
+import br.com.libraryapi.api.mapper.BookMapper;
+import br.com.libraryapi.api.mapper.BookMapperImpl;
+import br.com.libraryapi.api.mapper.LoanMapper;
+import br.com.libraryapi.api.mapper.LoanMapperImpl;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoanMapperTest {
+
+    private final BookMapper bookMapper = new BookMapperImpl();
+
+    private final LoanMapper loanMapper = new LoanMapperImpl(bookMapper);
+
+    @Test
+    @DisplayName("Deve converter um livro em DTO e de volta em entidade.")
+    public void bookRoundTripTest() {
+        // cenário
+        Book book = Book.builder().id(11).author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
+
+        // execução
+        BookDTO dto = bookMapper.toDTO(book);
+        Book entity = bookMapper.toEntity(dto);
+
+        // verificações
+        assertThat(dto.getId()).isEqualTo(11);
+        assertThat(dto.getTitle()).isEqualTo("A Identidade Bourne");
+        assertThat(dto.getAuthor()).isEqualTo("Robert Ludlum");
+        assertThat(dto.getIsbn()).isEqualTo("12345");
+        assertThat(entity).isEqualTo(book);
+    }
+
+    @Test
+    @DisplayName("Deve converter um empréstimo em DTO com o livro aninhado.")
+    public void loanToDTOTest() {
+        // cenário
+        Book book = Book.builder().id(11).author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
+        Loan loan = Loan.builder().id(7).book(book).customer("Alex").customerEmail("alex@mail.com")
+                .loanDate(LocalDate.now()).build();
+
+        // execução
+        LoanDTO dto = loanMapper.toDTO(loan);
+
+        // verificações
+        assertThat(dto.getId()).isEqualTo(7);
+        assertThat(dto.getIsbn()).isEqualTo("12345");
+        assertThat(dto.getCustomer()).isEqualTo("Alex");
+        assertThat(dto.getCustomerEmail()).isEqualTo("alex@mail.com");
+        assertThat(dto.getBook().getId()).isEqualTo(11);
+        assertThat(dto.getBook().getTitle()).isEqualTo("A Identidade Bourne");
+    }
+
+    @Test
+    @DisplayName("Deve retornar nulo ao converter valores nulos.")
+    public void nullSafeTest() {
+        assertThat(bookMapper.toDTO(null)).isNull();
+        assertThat(bookMapper.toEntity(null)).isNull();
+        assertThat(loanMapper.toDTO(null)).isNull();
+    }
+}
@@ -7,12 +7,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -56,6 +63,27 @@ public class BookRepositoryTest {
         assertThat(foundBook.isPresent()).isTrue();
     }
 
+    @Test
+    @DisplayName("Deve incrementar a versão ao atualizar um livro e recusar uma cópia desatualizada.")
+    public void versionTest() {
+        // cenário
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        entityManager.flush();
+        entityManager.detach(book);
+        Integer version = book.getVersion();
+
+        // execução
+        book.setTitle("Outro título");
+        Book updatedBook = bookRepository.saveAndFlush(book);
+
+        // verificações
+        assertThat(updatedBook.getVersion()).isEqualTo(version + 1);
+        book.setTitle("Título desatualizado");
+        assertThatThrownBy(() -> bookRepository.saveAndFlush(book))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
     @Test
     @DisplayName("Deve salvar um livro.")
     public void saveBookTest() {
@@ -87,6 +115,87 @@ public class BookRepositoryTest {
         assertThat(deletedBook).isNull();
     }
 
+    @Test
+    @DisplayName("Deve percorrer os livros filtrados por cursor, sem repetir nem pular registros.")
+    public void findSliceTest() {
+        // cenário
+        String[] titles = {"Bourne C", "Bourne A", "Outro", "Bourne B", "Bourne A"};
+        for (int i = 0; i < titles.length; i++) {
+            entityManager.persist(Book.builder().author("Robert Ludlum").title(titles[i]).isbn("isbn-" + i).build());
+        }
+        Example<Book> example = Example.of(Book.builder().title("bourne").build(),
+                ExampleMatcher.matching().withIgnoreCase().withIgnoreNullValues()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+
+        // execução
+        List<String> found = new ArrayList<>();
+        Keyset after = null;
+        int slices = 0;
+        do {
+            KeysetSlice<Book> slice = bookRepository.findSlice(example, after, Sort.by("title"), 2);
+            slice.getContent().forEach(book -> found.add(book.getTitle()));
+            after = slice.getNext();
+            slices++;
+        } while (after != null);
+
+        // verificações
+        assertThat(found).containsExactly("Bourne A", "Bourne A", "Bourne B", "Bourne C");
+        assertThat(slices).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve continuar a partir de um cursor codificado.")
+    public void findSliceFromEncodedCursorTest() {
+        // cenário
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(createNewBook("isbn-" + i));
+        }
+        Example<Book> example = Example.of(new Book(), ExampleMatcher.matching().withIgnoreNullValues());
+        KeysetSlice<Book> first = bookRepository.findSlice(example, null, Sort.by(Sort.Direction.DESC, "id"), 1);
+
+        // execução
+        Keyset after = Keyset.decode(first.getNext().encode());
+        KeysetSlice<Book> second = bookRepository.findSlice(example, after, Sort.by(Sort.Direction.DESC, "id"), 1);
+
+        // verificações
+        assertThat(second.getContent()).hasSize(1);
+        assertThat(second.getContent().get(0).getId()).isLessThan(first.getContent().get(0).getId());
+        assertThat(second.isHasNext()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve percorrer por cursor os livros sem valor na ordenação, antes dos demais na ordem crescente e depois na decrescente.")
+    public void findSliceWithNullKeysTest() {
+        // cenário
+        String[] titles = {"Bourne B", null, "Bourne A", null, "null"};
+        for (int i = 0; i < titles.length; i++) {
+            entityManager.persist(Book.builder().author("Robert Ludlum").title(titles[i]).isbn("isbn-" + i).build());
+        }
+        Example<Book> example = Example.of(new Book(), ExampleMatcher.matching().withIgnoreNullValues());
+
+        // execução
+        List<String> ascending = titles(example, Sort.by("title"));
+        List<String> descending = titles(example, Sort.by(Sort.Direction.DESC, "title"));
+
+        // verificações
+        assertThat(ascending).containsExactly(null, null, "Bourne A", "Bourne B", "null");
+        assertThat(descending).containsExactly("null", "Bourne B", "Bourne A", null, null);
+    }
+
+    /**
+     * Walks every slice of two books, passing the cursor encoded like the API does.
+     */
+    private List<String> titles(Example<Book> example, Sort sort) {
+        List<String> found = new ArrayList<>();
+        Keyset after = null;
+        do {
+            KeysetSlice<Book> slice = bookRepository.findSlice(example, after, sort, 2);
+            slice.getContent().forEach(book -> found.add(book.getTitle()));
+            after = slice.getNext() == null ? null : Keyset.decode(slice.getNext().encode());
+        } while (after != null);
+        return found;
+    }
+
     private Book createNewBook(String isbn) {
         return Book.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn(isbn).build();
     }
@@ -0,0 +1,47 @@
+package br.com.libraryapi.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the migrations up to V6 on an empty H2 database, registers loans the way they were before customers
+ * existed and runs the backfill of V7 on them.
+ */
+public class CustomerBackfillMigrationTest {
+
+    @Test
+    @DisplayName("Deve criar os clientes dos empréstimos existentes e referenciá-los pelo id.")
+    public void backfillLoanCustomersTest() {
+        // cenário
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:backfill;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Flyway.configure().dataSource(dataSource).target(MigrationVersion.fromVersion("6")).load().migrate();
+        jdbc.update("insert into book (id, isbn, copies, available_copies) values (1, '123', 5, 1)");
+        jdbc.update("insert into loan (id, customer, customer_email, id_book) values (1, 'Alex', 'alex@mail.com', 1)");
+        jdbc.update("insert into loan (id, customer, customer_email, id_book) values (2, 'Alexandre', 'alex@mail.com', 1)");
+        jdbc.update("insert into loan (id, customer, customer_email, id_book) values (3, 'Maria', null, 1)");
+        jdbc.update("insert into loan (id, customer, customer_email, id_book) values (4, 'Maria', null, 1)");
+        jdbc.update("insert into loan (id, customer, customer_email, id_book) values (5, null, null, 1)");
+
+        // execução
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        // verificações
+        List<Map<String, Object>> customers = jdbc.queryForList("select id, name, email from customer order by id");
+        assertThat(customers).extracting(customer -> customer.get("NAME")).containsExactly("Alex", "Maria");
+        assertThat(customers).extracting(customer -> customer.get("ID")).containsExactly(1, 2);
+        List<Integer> ids = jdbc.queryForList("select id_customer from loan order by id", Integer.class);
+        assertThat(ids.get(0)).isNotNull().isEqualTo(ids.get(1));
+        assertThat(ids.get(2)).isNotNull().isEqualTo(ids.get(3)).isNotEqualTo(ids.get(0));
+        assertThat(ids.get(4)).isNull();
+    }
+}
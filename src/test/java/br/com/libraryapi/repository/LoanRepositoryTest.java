@@ -1,23 +1,32 @@
 package br.com.libraryapi.repository;
 
 import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Customer;
 import br.com.libraryapi.model.Loan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("teste")
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class LoanRepositoryTest {
 
     @Autowired
@@ -42,4 +51,154 @@ public class LoanRepositoryTest {
         // validações
         assertThat(exists).isTrue();
     }
+
+    @Test
+    @DisplayName("Deve buscar uma página de empréstimos com os livros em número fixo de consultas.")
+    public void findAllStatementCountTest() {
+        // cenário
+        for (int i = 0; i < 5; i++) {
+            Book book = Book.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn("isbn-" + i).build();
+            entityManager.persist(book);
+            entityManager.persist(Loan.builder().book(book).customer("Alex").loanDate(LocalDate.now()).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        // execução
+        Page<Loan> result = loanRepository.findAll(LoanSpecifications.byCustomer("Alex"), PageRequest.of(0, 3));
+        result.getContent().forEach(loan -> loan.getBook().getTitle());
+
+        // validações: uma consulta para a página (com os livros) e uma para o total
+        assertThat(result.getContent()).hasSize(3);
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve buscar os empréstimos de um livro sem consultas adicionais para o livro.")
+    public void findByBookStatementCountTest() {
+        // cenário
+        Book book = Book.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
+        entityManager.persist(book);
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(Loan.builder().book(book).customer("Alex " + i).loanDate(LocalDate.now()).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        // execução
+        Page<Loan> result = loanRepository.findByBook(book, PageRequest.of(0, 10));
+        result.getContent().forEach(loan -> loan.getBook().getTitle());
+
+        // validações
+        assertThat(result.getContent()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve percorrer os empréstimos filtrados por stream, em ordem de id.")
+    public void streamTest() {
+        // cenário
+        Book book = Book.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
+        Book other = Book.builder().author("Robert Ludlum").title("O Ultimato Bourne").isbn("54321").build();
+        entityManager.persist(book);
+        entityManager.persist(other);
+        Loan joel = entityManager.persist(Loan.builder().book(book).customer("Joel").loanDate(LocalDate.now()).build());
+        Loan alex = entityManager.persist(Loan.builder().book(other).customer("Alex").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(other).customer("Maria").loanDate(LocalDate.now()).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        // execução
+        List<String> customers;
+        try (Stream<Loan> loans = loanRepository.stream(LoanSpecifications.byIdIn(Arrays.asList(alex.getId(), joel.getId())))) {
+            customers = loans.map(Loan::getCustomer).collect(Collectors.toList());
+        }
+
+        // validações
+        assertThat(customers).containsExactly("Joel", "Alex");
+    }
+
+    @Test
+    @DisplayName("Deve filtrar os empréstimos do livro ou do cliente, contando cada um uma vez.")
+    public void findByBookIdOrCustomerTest() {
+        // cenário
+        Book book = Book.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
+        Book other = Book.builder().author("Robert Ludlum").title("O Ultimato Bourne").isbn("54321").build();
+        entityManager.persist(book);
+        entityManager.persist(other);
+        entityManager.persist(Loan.builder().book(book).customer("Joel").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(book).customer("Alex").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(other).customer("Alex").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(other).customer("Maria").loanDate(LocalDate.now()).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        // execução
+        Page<Loan> result = loanRepository.findAll(LoanSpecifications.byBookIdOrCustomer(book.getId(), "Alex"),
+                                                   PageRequest.of(0, 10));
+
+        // validações
+        assertThat(result.getTotalElements()).isEqualTo(3);
+        assertThat(result.getContent()).extracting(Loan::getCustomer).containsExactlyInAnyOrder("Joel", "Alex", "Alex");
+    }
+
+    @Test
+    @DisplayName("Deve buscar os empréstimos atrasados em blocos ordenados por email do cliente.")
+    public void findLateLoansAfterTest() {
+        // cenário
+        Book book = Book.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
+        entityManager.persist(book);
+        LocalDate late = LocalDate.now().minusDays(5);
+        Loan maria = entityManager.persist(Loan.builder().book(book).customer("Maria").customerEmail("maria@mail.com").loanDate(late).build());
+        Loan alex = entityManager.persist(Loan.builder().book(book).customer("Alex").customerEmail("alex@mail.com").loanDate(late).build());
+        Loan alexAgain = entityManager.persist(Loan.builder().book(book).customer("Alex").customerEmail("alex@mail.com").loanDate(late).build());
+        entityManager.persist(Loan.builder().book(book).customer("Joel").customerEmail("joel@mail.com").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(book).customer("Ana").customerEmail("ana@mail.com").loanDate(late).returned(true).build());
+        entityManager.flush();
+
+        // execução
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(4);
+        List<Loan> firstChunk = loanRepository.findLateLoansAfter(threeDaysAgo, "", 0, PageRequest.of(0, 2));
+        List<Loan> secondChunk = loanRepository.findLateLoansAfter(threeDaysAgo, "alex@mail.com", alexAgain.getId(), PageRequest.of(0, 2));
+
+        // validações
+        assertThat(firstChunk).containsExactly(alex, alexAgain);
+        assertThat(secondChunk).containsExactly(maria);
+    }
+
+    @Test
+    @DisplayName("Deve buscar o histórico de empréstimos de um cliente, mais recentes primeiro.")
+    public void findByCustomerIdTest() {
+        // cenário
+        Book book = Book.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
+        entityManager.persist(book);
+        Customer customer = entityManager.persist(Customer.builder().name("Alex").email("alex@mail.com").build());
+        Customer other = entityManager.persist(Customer.builder().name("Maria").email("maria@mail.com").build());
+        Loan old = entityManager.persist(Loan.builder().book(book).customer("Alex").customerId(customer.getId())
+                                             .loanDate(LocalDate.now().minusDays(10)).build());
+        Loan recent = entityManager.persist(Loan.builder().book(book).customer("Alex").customerId(customer.getId())
+                                                .loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(book).customer("Maria").customerId(other.getId())
+                                  .loanDate(LocalDate.now()).build());
+        entityManager.flush();
+
+        // execução
+        Page<Loan> result = loanRepository.findByCustomerIdOrderByLoanDateDescIdDesc(customer.getId(), PageRequest.of(0, 10));
+
+        // validações
+        assertThat(result.getContent()).containsExactly(recent, old);
+        assertThat(result.getTotalElements()).isEqualTo(2);
+    }
+
+    private Statistics statistics() {
+        return entityManager.getEntityManager()
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
 }
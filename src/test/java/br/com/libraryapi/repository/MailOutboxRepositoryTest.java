@@ -0,0 +1,59 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.MailOutbox;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class MailOutboxRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Test
+    @DisplayName("Deve buscar somente os emails pendentes cuja próxima tentativa já venceu.")
+    public void findDueTest() {
+        // cenário
+        LocalDateTime now = LocalDateTime.now();
+        MailOutbox due = entityManager.persist(createMail("alex@mail.com", MailOutbox.Status.PENDING, now.minusMinutes(1)));
+        MailOutbox older = entityManager.persist(createMail("joel@mail.com", MailOutbox.Status.PENDING, now.minusMinutes(5)));
+        entityManager.persist(createMail("maria@mail.com", MailOutbox.Status.PENDING, now.plusMinutes(5)));
+        entityManager.persist(createMail("ana@mail.com", MailOutbox.Status.SENT, now.minusMinutes(5)));
+        entityManager.flush();
+
+        // execução
+        List<MailOutbox> result = mailOutboxRepository.findDue(MailOutbox.Status.PENDING, now, PageRequest.of(0, 10));
+
+        // validações
+        assertThat(result).containsExactly(older, due);
+        assertThat(mailOutboxRepository.countByStatus(MailOutbox.Status.PENDING)).isEqualTo(3);
+    }
+
+    private MailOutbox createMail(String recipient, MailOutbox.Status status, LocalDateTime nextAttemptAt) {
+        return MailOutbox.builder()
+                         .recipient(recipient)
+                         .subject("Livro com empréstimo atrasado")
+                         .message("Atraso")
+                         .status(status)
+                         .createdAt(nextAttemptAt)
+                         .nextAttemptAt(nextAttemptAt)
+                         .build();
+    }
+}
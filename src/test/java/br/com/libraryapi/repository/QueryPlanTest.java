@@ -0,0 +1,192 @@
+package br.com.libraryapi.repository;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.MailOutbox;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code EXPLAIN} on H2 for the SQL behind every filtering repository query and fails on a full table
+ * scan. Listings without a filter (first keyset slice, findAll) read the whole table by design and are not
+ * checked here.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=br.com.libraryapi.repository.SqlCaptor")
+public class QueryPlanTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private Book book;
+
+    private Loan loan;
+
+    @BeforeEach
+    public void setUp() {
+        book = entityManager.persist(Book.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build());
+        loan = entityManager.persist(Loan.builder().book(book).customer("Alex").customerEmail("alex@mail.com")
+                                         .loanDate(LocalDate.now().minusDays(5)).build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Consultas de livro por isbn devem usar índice.")
+    public void bookIsbnQueriesTest() {
+        assertNoFullScan(() -> bookRepository.findByIsbn("12345"));
+        assertNoFullScan(() -> bookRepository.existsByIsbn("12345"));
+        assertNoFullScan(() -> bookRepository.findByIsbnIn(Arrays.asList("12345", "54321")));
+        assertNoFullScan(() -> bookRepository.findIsbnsIn(Arrays.asList("12345", "54321")));
+    }
+
+    @Test
+    @DisplayName("Consultas e atualizações de livro por id devem usar índice.")
+    public void bookIdQueriesTest() {
+        assertNoFullScan(() -> bookRepository.findById(book.getId()));
+        assertNoFullScan(() -> bookRepository.findAvailableCopies(book.getId()));
+        assertNoFullScan(() -> bookRepository.checkoutCopy(book.getId()));
+        assertNoFullScan(() -> bookRepository.checkoutCopies(book.getId(), 2));
+        assertNoFullScan(() -> bookRepository.returnCopy(book.getId()));
+    }
+
+    @Test
+    @DisplayName("A paginação por cursor de livros deve usar índice a partir da segunda página.")
+    public void bookKeysetQueriesTest() {
+        Example<Book> all = Example.of(new Book(), ExampleMatcher.matching().withIgnoreNullValues());
+        assertNoFullScan(() -> bookRepository.findSlice(all, new Keyset("id", Sort.Direction.ASC, String.valueOf(book.getId()), book.getId()),
+                                                        Sort.by("id"), 10));
+        assertNoFullScan(() -> bookRepository.findSlice(all, new Keyset("title", Sort.Direction.ASC, "A", book.getId()),
+                                                        Sort.by("title"), 10));
+        assertNoFullScan(() -> bookRepository.findSlice(all, new Keyset("author", Sort.Direction.DESC, "Z", book.getId()),
+                                                        Sort.by(Sort.Direction.DESC, "author"), 10));
+    }
+
+    @Test
+    @DisplayName("Consultas de empréstimos por livro devem usar índice.")
+    public void loanByBookQueriesTest() {
+        assertNoFullScan(() -> loanRepository.existsByBookAndNotReturned(book));
+        assertNoFullScan(() -> loanRepository.findByBook(book, PageRequest.of(0, 10)));
+    }
+
+    @Test
+    @DisplayName("Consultas de empréstimos atrasados devem usar índice.")
+    public void lateLoanQueriesTest() {
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(4);
+        assertNoFullScan(() -> loanRepository.findByLoanDateLessThanAnNotReturned(threeDaysAgo));
+        assertNoFullScan(() -> loanRepository.findLateLoansAfter(threeDaysAgo, "", 0, PageRequest.of(0, 10)));
+    }
+
+    @Test
+    @DisplayName("Atualizações de empréstimo por id devem usar índice.")
+    public void loanUpdatesTest() {
+        assertNoFullScan(() -> loanRepository.markReturned(loan.getId()));
+        assertNoFullScan(() -> loanRepository.markNotReturned(loan.getId()));
+        assertNoFullScan(() -> loanRepository.findReturnedByIds(Collections.singletonList(loan.getId())));
+    }
+
+    @Test
+    @DisplayName("Consultas da caixa de saída de emails devem usar índice.")
+    public void mailOutboxQueriesTest() {
+        assertNoFullScan(() -> mailOutboxRepository.findDue(MailOutbox.Status.PENDING, LocalDateTime.now(), PageRequest.of(0, 10)));
+        assertNoFullScan(() -> mailOutboxRepository.countByStatus(MailOutbox.Status.PENDING));
+    }
+
+    @Test
+    @DisplayName("Cada consulta do filtro por isbn ou cliente deve usar índice.")
+    public void loanByIsbnOrCustomerQueriesTest() {
+        assertNoFullScan(() -> bookRepository.findIdByIsbn("12345"));
+        assertNoFullScan(() -> loanRepository.findAll(LoanSpecifications.byBookId(book.getId()), PageRequest.of(0, 10)));
+        assertNoFullScan(() -> loanRepository.findAll(LoanSpecifications.byCustomer("Alex"), PageRequest.of(0, 10)));
+        assertNoFullScan(() -> loanRepository.findAll(LoanSpecifications.byIdIn(Arrays.asList(loan.getId())), PageRequest.of(0, 10)));
+        assertNoFullScan(() -> loanRepository.findSlice(LoanSpecifications.byCustomer("Alex"), null, Sort.unsorted(), 10));
+        assertNoFullScan(() -> {
+            try (Stream<Loan> loans = loanRepository.stream(LoanSpecifications.byBookId(book.getId()))) {
+                loans.count();
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Consultas de cliente e do histórico de empréstimos do cliente devem usar índice.")
+    public void customerQueriesTest() {
+        assertNoFullScan(() -> customerRepository.findByEmail("alex@mail.com"));
+        assertNoFullScan(() -> customerRepository.findFirstByNameAndEmailIsNullOrderById("Alex"));
+        assertNoFullScan(() -> customerRepository.findByEmailIn(Arrays.asList("alex@mail.com", "maria@mail.com")));
+        assertNoFullScan(() -> customerRepository.findByNameInAndEmailIsNullOrderById(Arrays.asList("Alex", "Maria")));
+        assertNoFullScan(() -> loanRepository.findByCustomerIdOrderByLoanDateDescIdDesc(1, PageRequest.of(0, 10)));
+    }
+
+    private void assertNoFullScan(Runnable query) {
+        SqlCaptor.clear();
+        query.run();
+        List<String> statements = SqlCaptor.statements();
+        assertThat(statements).isNotEmpty();
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertThat(plan.toLowerCase()).as("plan of %s", sql).doesNotContain("tablescan");
+        }
+        entityManager.clear();
+    }
+
+    /**
+     * Parameters are left null: H2 picks the plan when the statement is prepared, not from the values.
+     */
+    private String explain(String sql) {
+        return session().doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setObject(i, null);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        plan.append(result.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    private Session session() {
+        return entityManager.getEntityManager().unwrap(Session.class);
+    }
+}
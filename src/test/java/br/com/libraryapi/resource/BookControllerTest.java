@@ -1,16 +1,22 @@
 package br.com.libraryapi.resource;
 
 import br.com.libraryapi.api.dto.BookDTO;
+import br.com.libraryapi.api.dto.BookImportResultDTO;
 import br.com.libraryapi.api.exception.ApiErrors;
 import br.com.libraryapi.api.resource.BookController;
 import br.com.libraryapi.exception.BussinessException;
 import br.com.libraryapi.model.Book;
+import br.com.libraryapi.service.BookImportFormat;
+import br.com.libraryapi.service.BookImportService;
+import br.com.libraryapi.service.BookJsonCache;
 import br.com.libraryapi.service.BookService;
 import br.com.libraryapi.service.LoanService;
+import org.assertj.core.api.Assertions;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -22,6 +28,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -63,6 +70,12 @@ public class BookControllerTest {
 	@MockBean
 	LoanService loanService;
 
+	@MockBean
+	BookImportService bookImportService;
+
+	@MockBean
+	BookJsonCache bookJsonCache;
+
 	@Test
 	@DisplayName("Deve criar um livro com sucesso")
 	public void createBookTest() throws Exception {
@@ -197,7 +210,7 @@ public class BookControllerTest {
 		Book updatingBook = Book.builder().id(11).author("some author").title("some title").isbn("12345").build();
 		BDDMockito.given(bookService.getById(id)).willReturn(Optional.of(updatingBook));
 
-		BDDMockito.given(bookService.update(updatingBook)).willReturn(Book.builder().id(id).author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build());
+		BDDMockito.given(bookService.update(Mockito.any(Book.class))).willReturn(Book.builder().id(id).author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build());
 
 		// execução
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/" + 11) )
@@ -213,6 +226,92 @@ public class BookControllerTest {
 				.andExpect(jsonPath("author").value(createNewBook().getAuthor()))
 				.andExpect(jsonPath("isbn").value("12345"));
 
+		ArgumentCaptor<Book> updated = ArgumentCaptor.forClass(Book.class);
+		Mockito.verify(bookService).update(updated.capture());
+		Assertions.assertThat(updated.getValue().getTitle()).isEqualTo(createNewBook().getTitle());
+		// the instance read, possibly cached, is left untouched
+		Assertions.assertThat(updatingBook.getTitle()).isEqualTo("some title");
+	}
+
+	@Test
+	@DisplayName("Deve retornar o ETag do livro e 304 quando o cliente já tem a versão atual.")
+	public void getBookNotModifiedTest() throws Exception {
+		// cenário
+		Book book = Book.builder().id(11).author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").version(3).build();
+		BDDMockito.given(bookService.getById(11)).willReturn(Optional.of(book));
+
+		// execução e verificações
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/11")).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"3\""));
+
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/11"))
+				.header("If-None-Match", "\"3\"")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", "\"3\""))
+				.andExpect(content().string(""));
+	}
+
+	@Test
+	@DisplayName("Deve serializar o livro uma vez e guardar o JSON no cache fora do heap.")
+	public void getBookCachesJsonTest() throws Exception {
+		// cenário
+		Book book = Book.builder().id(11).author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").version(3).build();
+		BDDMockito.given(bookJsonCache.isEnabled()).willReturn(true);
+		BDDMockito.given(bookJsonCache.stamp(11)).willReturn(7L);
+		BDDMockito.given(bookService.getById(11)).willReturn(Optional.of(book));
+
+		// execução
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/11")).accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"3\""))
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("id").value(11))
+				.andExpect(jsonPath("title").value("A Identidade Bourne"));
+
+		// verificações
+		Mockito.verify(bookJsonCache).put(Mockito.eq(11), Mockito.eq(3), Mockito.any(byte[].class), Mockito.eq(7L));
+	}
+
+	@Test
+	@DisplayName("Deve retornar 412 ao atualizar um livro com If-Match desatualizado.")
+	public void updateBookPreconditionFailedTest() throws Exception {
+		// cenário
+		String json = new ObjectMapper().writeValueAsString(createNewBook());
+		Book book = Book.builder().id(11).author("some author").title("some title").isbn("12345").version(4).build();
+		BDDMockito.given(bookService.getById(11)).willReturn(Optional.of(book));
+
+		// execução
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/11"))
+				.header("If-Match", "\"3\"")
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+
+		// verificações
+		mvc.perform(request).andExpect(status().isPreconditionFailed());
+		Mockito.verify(bookService, Mockito.never()).update(Mockito.any(Book.class));
+	}
+
+	@Test
+	@DisplayName("Deve retornar 412 quando o livro muda entre a leitura e a atualização.")
+	public void updateBookConcurrentChangeTest() throws Exception {
+		// cenário
+		String json = new ObjectMapper().writeValueAsString(createNewBook());
+		Book book = Book.builder().id(11).author("some author").title("some title").isbn("12345").version(3).build();
+		BDDMockito.given(bookService.getById(11)).willReturn(Optional.of(book));
+		BDDMockito.given(bookService.update(Mockito.any(Book.class))).willThrow(new ObjectOptimisticLockingFailureException(Book.class, 11));
+
+		// execução
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/11"))
+				.header("If-Match", "\"3\"")
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+
+		// verificações
+		mvc.perform(request).andExpect(status().isPreconditionFailed());
 	}
 
 	@Test
@@ -261,6 +360,30 @@ public class BookControllerTest {
 				.andExpect(jsonPath("pageable.pageNumber").value(0));
 	}
 
+	@Test
+	@DisplayName("Deve importar livros em lote a partir de NDJSON.")
+	public void importBooksTest() throws Exception {
+		// cenário
+		BookImportResultDTO result = BookImportResultDTO.builder().total(2).created(2).rejected(Arrays.asList()).build();
+		BDDMockito.given(bookImportService.importBooks(Mockito.any(), Mockito.eq(BookImportFormat.NDJSON)))
+				.willReturn(result);
+		String ndjson = new ObjectMapper().writeValueAsString(createNewBook()) + "\n"
+				+ new ObjectMapper().writeValueAsString(createNewBook());
+
+		// execução
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/bulk"))
+				.contentType("application/x-ndjson")
+				.accept(MediaType.APPLICATION_JSON)
+				.content(ndjson);
+
+		// verificações
+		mvc.perform(request)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("total").value(2))
+				.andExpect(jsonPath("created").value(2))
+				.andExpect(jsonPath("rejected", hasSize(0)));
+	}
+
 	private BookDTO createNewBook() {
 		return BookDTO.builder().author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
 	}
@@ -0,0 +1,182 @@
+package br.com.libraryapi.resource;
+
+import br.com.libraryapi.api.resource.CatalogController;
+import br.com.libraryapi.config.ReplicaRoutingDataSource;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
+import br.com.libraryapi.service.BookSearchIndex;
+import br.com.libraryapi.service.BookService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = CatalogController.class, properties = "application.catalog.reactive.enabled=true")
+@AutoConfigureMockMvc
+public class CatalogControllerTest {
+
+    static String CATALOG_API = "/api/catalog/books";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    BookSearchIndex bookSearchIndex;
+
+    @MockBean
+    BookService bookService;
+
+    @Test
+    @DisplayName("Deve obter um livro do índice sem consultar o banco.")
+    public void getFromIndexTest() throws Exception {
+        // cenário
+        BDDMockito.given(bookSearchIndex.isReady()).willReturn(true);
+        BDDMockito.given(bookSearchIndex.get(11)).willReturn(Optional.of(book(11, "A Identidade Bourne")));
+
+        // execução
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(CATALOG_API + "/11").accept(MediaType.APPLICATION_JSON))
+                              .andExpect(request().asyncStarted())
+                              .andReturn();
+
+        // verificações
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("id").value(11))
+           .andExpect(jsonPath("title").value("A Identidade Bourne"));
+        verify(bookService, never()).getById(Mockito.anyInt());
+    }
+
+    @Test
+    @DisplayName("Deve retornar not found quando o livro não está no catálogo.")
+    public void getNotFoundTest() throws Exception {
+        // cenário
+        BDDMockito.given(bookSearchIndex.isReady()).willReturn(true);
+        BDDMockito.given(bookSearchIndex.get(11)).willReturn(Optional.empty());
+
+        // execução
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(CATALOG_API + "/11").accept(MediaType.APPLICATION_JSON))
+                              .andExpect(request().asyncStarted())
+                              .andReturn();
+
+        // verificações
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os livros encontrados pelo índice um por linha, na ordem de relevância.")
+    public void streamSearchTest() throws Exception {
+        // cenário
+        BDDMockito.given(bookSearchIndex.isReady()).willReturn(true);
+        BDDMockito.given(bookSearchIndex.supports(Mockito.any(Book.class), Mockito.any(Pageable.class))).willReturn(true);
+        BDDMockito.given(bookSearchIndex.rank(Mockito.any(Book.class))).willReturn(Arrays.asList(3, 1));
+        BDDMockito.given(bookSearchIndex.get(3)).willReturn(Optional.of(book(3, "Bourne")));
+        BDDMockito.given(bookSearchIndex.get(1)).willReturn(Optional.of(book(1, "A Identidade Bourne")));
+
+        // execução
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(CATALOG_API)
+                                                             .param("title", "bourne")
+                                                             .accept(MediaType.APPLICATION_STREAM_JSON))
+                              .andExpect(request().asyncStarted())
+                              .andReturn();
+
+        // verificações
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+           .andExpect(status().isOk())
+           .andExpect(content().string(containsString("{\"id\":3,")))
+           .andExpect(content().string(containsString("\n{\"id\":1,")));
+        verify(bookService, never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve buscar no banco em fatias enquanto o índice não está carregado.")
+    public void findFromDatabaseTest() throws Exception {
+        // cenário
+        BDDMockito.given(bookSearchIndex.isReady()).willReturn(false);
+        BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.isNull(), Mockito.any(Pageable.class)))
+                  .willReturn(new KeysetSlice<>(Arrays.asList(book(1, "A Identidade Bourne"), book(2, "O Ultimato Bourne")),
+                                                false, null));
+
+        // execução
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(CATALOG_API)
+                                                             .param("title", "bourne")
+                                                             .accept(MediaType.APPLICATION_JSON))
+                              .andExpect(request().asyncStarted())
+                              .andReturn();
+
+        // verificações
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("$", hasSize(2)))
+           .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve ler do primário em todas as fatias quando a requisição precisa ler a própria escrita.")
+    public void findFromDatabaseOnPrimaryTest() throws Exception {
+        // cenário
+        BDDMockito.given(bookSearchIndex.isReady()).willReturn(false);
+        Keyset next = new Keyset("id", Sort.Direction.ASC, "1", 1);
+        List<Boolean> onPrimary = new CopyOnWriteArrayList<>();
+        BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.isNull(), Mockito.any(Pageable.class)))
+                  .willAnswer(invocation -> {
+                      onPrimary.add(ReplicaRoutingDataSource.isPrimaryRequired());
+                      return new KeysetSlice<>(Arrays.asList(book(1, "A Identidade Bourne")), true, next);
+                  });
+        BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.eq(next), Mockito.any(Pageable.class)))
+                  .willAnswer(invocation -> {
+                      onPrimary.add(ReplicaRoutingDataSource.isPrimaryRequired());
+                      return new KeysetSlice<>(Arrays.asList(book(2, "O Ultimato Bourne")), false, null);
+                  });
+
+        // execução
+        MvcResult result;
+        ReplicaRoutingDataSource.requirePrimary();
+        try {
+            result = mvc.perform(MockMvcRequestBuilders.get(CATALOG_API)
+                                                       .param("title", "bourne")
+                                                       .accept(MediaType.APPLICATION_JSON))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+        } finally {
+            ReplicaRoutingDataSource.clearPrimaryRequired();
+        }
+
+        // verificações
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+           .andExpect(status().isOk())
+           .andExpect(jsonPath("$", hasSize(2)));
+        assertThat(onPrimary).containsExactly(true, true);
+    }
+
+    private Book book(Integer id, String title) {
+        return Book.builder().id(id).title(title).author("Robert Ludlum").isbn(String.valueOf(id)).copies(1).build();
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.libraryapi.resource;
+
+import br.com.libraryapi.api.resource.CustomerController;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Customer;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.service.CustomerService;
+import br.com.libraryapi.service.LoanService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@WebMvcTest(controllers = CustomerController.class)
+public class CustomerControllerTest {
+
+    private static final String CUSTOMER_API = "/api/customers";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    private CustomerService customerService;
+
+    @MockBean
+    private LoanService loanService;
+
+    @Test
+    @DisplayName("Deve obter os empréstimos de um cliente.")
+    public void customerLoansTest() throws Exception {
+        // cenário
+        Book book = Book.builder().id(12).isbn("1234").build();
+        Loan loan = Loan.builder().id(11).book(book).customer("Alex").customerId(7).loanDate(LocalDate.now()).build();
+        BDDMockito.given(customerService.getById(7)).willReturn(Optional.of(Customer.builder().id(7).build()));
+        BDDMockito.given(loanService.getLoansByCustomer(Mockito.eq(7), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1));
+
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/7/loans?page=0&size=10"))
+                                          .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(11))
+                .andExpect(jsonPath("content[0].customerId").value(7))
+                .andExpect(jsonPath("content[0].isbn").value("1234"))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve retornar not found ao obter os empréstimos de um cliente inexistente.")
+    public void customerNotFoundLoansTest() throws Exception {
+        // cenário
+        BDDMockito.given(customerService.getById(7)).willReturn(Optional.empty());
+
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/7/loans"))
+                                          .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+        Mockito.verify(loanService, Mockito.never()).getLoansByCustomer(Mockito.anyInt(), Mockito.any(Pageable.class));
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.libraryapi.resource;
+
+import br.com.libraryapi.api.resource.JournalController;
+import br.com.libraryapi.model.LoanEvent;
+import br.com.libraryapi.service.LoanJournal;
+import br.com.libraryapi.service.LoanJournalProjections;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@WebMvcTest(controllers = JournalController.class, properties = "application.loans.journal.enabled=true")
+public class JournalControllerTest {
+
+    private static final String JOURNAL_API = "/api/journal";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    private LoanJournal loanJournal;
+
+    @MockBean
+    private LoanJournalProjections loanJournalProjections;
+
+    @Test
+    @DisplayName("Deve obter os eventos registrados após a sequência informada.")
+    public void getEventsTest() throws Exception {
+        // cenário
+        LoanEvent event = LoanEvent.builder().seq(6).type(LoanEvent.Type.RETURN).loanId(1).bookId(11).build();
+        BDDMockito.given(loanJournal.read(5, 1000)).willReturn(Arrays.asList(event));
+
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.get(JOURNAL_API.concat("/events?after=5&size=5000"))
+                                          .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("[0].seq").value(6))
+                .andExpect(jsonPath("[0].type").value("RETURN"))
+                .andExpect(jsonPath("[0].loanId").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve obter o número de empréstimos abertos de um livro.")
+    public void getOpenLoansTest() throws Exception {
+        // cenário
+        BDDMockito.given(loanJournalProjections.openLoans(11)).willReturn(2);
+
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.get(JOURNAL_API.concat("/books/11/open-loans"))
+                                          .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir as projeções do diário.")
+    public void rebuildProjectionsTest() throws Exception {
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.post(JOURNAL_API.concat("/projections/rebuild")))
+                .andExpect(status().isNoContent());
+
+        Mockito.verify(loanJournalProjections).rebuild();
+    }
+}
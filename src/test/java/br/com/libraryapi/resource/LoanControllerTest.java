@@ -6,8 +6,13 @@ import br.com.libraryapi.api.dto.ReturnedLoanDTO;
 import br.com.libraryapi.api.resource.LoanController;
 import br.com.libraryapi.exception.BussinessException;
 import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Customer;
 import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanCheckout;
+import br.com.libraryapi.repository.Keyset;
+import br.com.libraryapi.repository.KeysetSlice;
 import br.com.libraryapi.service.BookService;
+import br.com.libraryapi.service.CustomerService;
 import br.com.libraryapi.service.LoanService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,6 +29,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -33,6 +39,8 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
@@ -56,6 +64,9 @@ public class LoanControllerTest {
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private CustomerService customerService;
+
     @Test
     @DisplayName("Deve realizar o empréstimo de um livro.")
     public void createLoanTest() throws Exception {
@@ -72,6 +83,8 @@ public class LoanControllerTest {
                                         .loanDate(LocalDate.now()).build();
 
         BDDMockito.given(loanService.save(Mockito.any(Loan.class))).willReturn(loan);
+        BDDMockito.given(customerService.resolve("Alexandre Spezani", "abcd@aol.com"))
+                .willReturn(Customer.builder().id(7).build());
 
         // execução
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API)
@@ -83,6 +96,7 @@ public class LoanControllerTest {
         mvc.perform(request)
                 .andExpect(status().isCreated())
                 .andExpect(content().string("1"));
+        Mockito.verify(loanService).save(Mockito.argThat(saved -> Integer.valueOf(7).equals(saved.getCustomerId())));
     }
 
     @Test
@@ -139,6 +153,80 @@ public class LoanControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve realizar empréstimos em lote, informando o resultado de cada item.")
+    public void createBatchLoanTest() throws Exception {
+        // cenário
+        LoanDTO free = LoanDTO.builder().isbn("1").customer("Alex").customerEmail("alex@aol.com").build();
+        LoanDTO loaned = LoanDTO.builder().isbn("2").customer("Alex").customerEmail("alex@aol.com").build();
+        LoanDTO unknown = LoanDTO.builder().isbn("3").customer("Alex").customerEmail("alex@aol.com").build();
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(free, loaned, unknown));
+
+        BDDMockito.given(bookService.getBooksByIsbn(Mockito.anyCollection()))
+                .willReturn(Arrays.asList(Book.builder().id(1).isbn("1").build(), Book.builder().id(2).isbn("2").build()));
+        BDDMockito.given(loanService.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.get(0).setId(10);
+            return Arrays.asList(new LoanCheckout(loans.get(0), true), new LoanCheckout(loans.get(1), false));
+        });
+
+        // execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        // validações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("[0].status").value("CREATED"))
+                .andExpect(jsonPath("[0].id").value(10))
+                .andExpect(jsonPath("[1].status").value("ALREADY_LOANED"))
+                .andExpect(jsonPath("[1].message").value("Book already loaned."))
+                .andExpect(jsonPath("[2].status").value("BOOK_NOT_FOUND"));
+    }
+
+    @Test
+    @DisplayName("Deve recusar o lote com itens inválidos.")
+    public void createBatchInvalidItemTest() throws Exception {
+        // cenário
+        LoanDTO withoutCustomer = LoanDTO.builder().isbn("1").customerEmail("alex@aol.com").build();
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(withoutCustomer));
+
+        // execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        // validações
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors", hasSize(1)));
+        Mockito.verify(loanService, Mockito.never()).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Deve recusar lotes maiores que o limite.")
+    public void createBatchTooLargeTest() throws Exception {
+        // cenário
+        LoanDTO loan = LoanDTO.builder().isbn("1").customer("Alex").customerEmail("alex@aol.com").build();
+        String json = new ObjectMapper().writeValueAsString(Collections.nCopies(LoanController.MAX_BATCH_SIZE + 1, loan));
+
+        // execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        // validações
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("At most 500 loans per batch."));
+        Mockito.verify(loanService, Mockito.never()).saveAll(Mockito.anyList());
+    }
+
     @Test
     @DisplayName("Deve retornar um livro.")
     public void returnBookTest() throws Exception {
@@ -208,6 +296,78 @@ public class LoanControllerTest {
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
 
+    @Test
+    @DisplayName("Deve filtrar empréstimos com paginação por cursor.")
+    public void findLoansAfterTest() throws Exception {
+        // Cenário
+        Book book = Book.builder().id(12).isbn("1234").build();
+        Loan loan = createLoan();
+        loan.setId(11);
+        loan.setBook(book);
+        Keyset next = new Keyset("id", Sort.Direction.ASC, "11", 11);
+
+        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.isNull(), Mockito.any(Pageable.class)))
+                .willReturn(new KeysetSlice<Loan>(Arrays.asList(loan), true, next));
+
+        // Execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?isbn=1234&after=&size=1"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // Validações
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].book.isbn").value("1234"))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("next").value(next.encode()))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Deve exportar os empréstimos filtrados em NDJSON.")
+    @SuppressWarnings("unchecked")
+    public void exportLoansTest() throws Exception {
+        // Cenário
+        Loan loan = createLoan();
+        loan.setId(11);
+        loan.setBook(Book.builder().id(12).isbn("1234").title("Bourne").build());
+        Mockito.doAnswer(invocation -> {
+            java.util.function.Consumer<Loan> consumer = invocation.getArgument(1);
+            consumer.accept(loan);
+            consumer.accept(loan);
+            return null;
+        }).when(loanService).export(Mockito.any(LoanFilterDTO.class), Mockito.any());
+
+        // Execução e validações
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?isbn=1234")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string(Matchers.startsWith("{\"id\":11,\"isbn\":\"1234\"")))
+                .andExpect(content().string(Matchers.endsWith("}\n")));
+    }
+
+    @Test
+    @DisplayName("Deve exportar os empréstimos filtrados em CSV.")
+    public void exportLoansCsvTest() throws Exception {
+        // Cenário
+        Loan loan = createLoan();
+        loan.setId(11);
+        loan.setBook(Book.builder().id(12).isbn("1234").title("Bourne, A Identidade").author("Robert Ludlum").build());
+        Mockito.doAnswer(invocation -> {
+            java.util.function.Consumer<Loan> consumer = invocation.getArgument(1);
+            consumer.accept(loan);
+            return null;
+        }).when(loanService).export(Mockito.any(LoanFilterDTO.class), Mockito.any());
+
+        // Execução e validações
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?customer=Alex&format=csv")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,isbn,customer,customerEmail,bookId,title,author\n"
+                        + "11,1234,Alex,,12,\"Bourne, A Identidade\",Robert Ludlum\n"));
+    }
+
     public Loan createLoan() {
         Book book = Book.builder().id(11).build();
         return Loan.builder()
@@ -0,0 +1,81 @@
+package br.com.libraryapi.resource;
+
+import br.com.libraryapi.api.resource.StatsController;
+import br.com.libraryapi.service.CirculationStats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@WebMvcTest(controllers = StatsController.class)
+public class StatsControllerTest {
+
+    private static final String STATS_API = "/api/stats";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    private CirculationStats circulationStats;
+
+    @Test
+    @DisplayName("Deve obter os contadores de empréstimos.")
+    public void getStatsTest() throws Exception {
+        // cenário
+        BDDMockito.given(circulationStats.isReady()).willReturn(true);
+        BDDMockito.given(circulationStats.getReconciledAt()).willReturn(LocalDateTime.now());
+        BDDMockito.given(circulationStats.activeLoans()).willReturn(5L);
+        BDDMockito.given(circulationStats.overdueLoans()).willReturn(2L);
+        BDDMockito.given(circulationStats.totalLoans()).willReturn(7L);
+
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.get(STATS_API).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("activeLoans").value(5))
+                .andExpect(jsonPath("overdueLoans").value(2))
+                .andExpect(jsonPath("totalLoans").value(7));
+    }
+
+    @Test
+    @DisplayName("Deve obter os contadores de empréstimos de um livro.")
+    public void getBookStatsTest() throws Exception {
+        // cenário
+        BDDMockito.given(circulationStats.isReady()).willReturn(true);
+        BDDMockito.given(circulationStats.activeLoans(11)).willReturn(1L);
+        BDDMockito.given(circulationStats.totalLoans(11)).willReturn(3L);
+
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.get(STATS_API.concat("/books/11")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("bookId").value(11))
+                .andExpect(jsonPath("activeLoans").value(1))
+                .andExpect(jsonPath("totalLoans").value(3));
+    }
+
+    @Test
+    @DisplayName("Deve retornar indisponível antes de carregar os contadores.")
+    public void statsNotReadyTest() throws Exception {
+        // cenário
+        BDDMockito.given(circulationStats.isReady()).willReturn(false);
+
+        // execução e verificações
+        mvc.perform(MockMvcRequestBuilders.get(STATS_API).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
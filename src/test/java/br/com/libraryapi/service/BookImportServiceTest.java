@@ -0,0 +1,163 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.api.dto.BookImportResultDTO;
+import br.com.libraryapi.api.dto.BookImportRowDTO;
+import br.com.libraryapi.config.BusinessMetrics;
+import br.com.libraryapi.exception.BussinessException;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.BookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookImportServiceTest {
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    BookSearchIndex bookSearchIndex;
+
+    @MockBean
+    IsbnBloomFilter isbnFilter;
+
+    BookImportService bookImportService;
+
+    @BeforeEach
+    public void setUp() {
+        bookImportService = new BookImportServiceImpl(bookRepository, bookSearchIndex, isbnFilter,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                new BusinessMetrics(new SimpleMeterRegistry()), 2, 100);
+        Mockito.when(bookRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de NDJSON em lotes, rejeitando duplicados e inválidos.")
+    @SuppressWarnings("unchecked")
+    public void importNdjsonTest() throws Exception {
+        // cenário
+        Mockito.when(bookRepository.findIsbnsIn(Mockito.anyCollection())).thenReturn(Collections.emptySet());
+        Mockito.when(bookRepository.findIsbnsIn(Set.of("1", "2"))).thenReturn(Set.of("2"));
+        String ndjson = "{\"title\":\"A\",\"author\":\"X\",\"isbn\":\"1\"}\n"
+                + "{\"title\":\"B\",\"author\":\"X\",\"isbn\":\"2\"}\n"
+                + "\n"
+                + "{\"title\":\"C\",\"author\":\"X\"}\n"
+                + "not json\n"
+                + "{\"title\":\"D\",\"author\":\"X\",\"isbn\":\"3\"}\n"
+                + "{\"title\":\"E\",\"author\":\"X\",\"isbn\":\"3\"}\n";
+
+        // execução
+        BookImportResultDTO result = bookImportService.importBooks(stream(ndjson), BookImportFormat.NDJSON);
+
+        // verificações
+        assertThat(result.getTotal()).isEqualTo(6);
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getDuplicated()).isEqualTo(2);
+        assertThat(result.getInvalid()).isEqualTo(2);
+        assertThat(result.getRejected()).extracting(BookImportRowDTO::getLine).containsExactly(2, 4, 5, 7);
+        assertThat(result.getRejected().get(1).getMessage()).startsWith("isbn ");
+
+        ArgumentCaptor<List<Book>> saved = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(bookRepository, Mockito.times(2)).saveAll(saved.capture());
+        assertThat(saved.getAllValues().get(0)).extracting(Book::getIsbn).containsExactly("1");
+        assertThat(saved.getAllValues().get(1)).extracting(Book::getIsbn).containsExactly("3");
+        Mockito.verify(bookSearchIndex, Mockito.times(2)).index(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de CSV com colunas em qualquer ordem e valores entre aspas.")
+    public void importCsvTest() throws Exception {
+        // cenário
+        Mockito.when(bookRepository.findIsbnsIn(Mockito.anyCollection())).thenReturn(Collections.emptySet());
+        String csv = "isbn,title,author\n"
+                + "1,\"Bourne, A Identidade\",Robert Ludlum\n"
+                + "2,\"O \"\"Ultimato\"\"\",Robert Ludlum\n";
+
+        // execução
+        BookImportResultDTO result = bookImportService.importBooks(stream(csv), BookImportFormat.CSV);
+
+        // verificações
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(BookImportServiceImpl.parseCsv("2,\"O \"\"Ultimato\"\"\",Robert Ludlum"))
+                .containsExactly("2", "O \"Ultimato\"", "Robert Ludlum");
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar como duplicado o isbn recusado pelo índice único, gravando o restante do lote.")
+    public void importDuplicatedByIndexTest() throws Exception {
+        // cenário
+        DataIntegrityViolationException duplicated = new DataIntegrityViolationException("could not execute statement",
+                new RuntimeException("Unique index or primary key violation: \"PUBLIC.UX_BOOK_ISBN_INDEX_2 ON PUBLIC.BOOK(ISBN)\""));
+        Mockito.when(isbnFilter.isDefinitelyAbsent(Mockito.anyString())).thenReturn(true);
+        Mockito.when(bookRepository.saveAll(Mockito.anyList())).thenThrow(duplicated);
+        Mockito.when(bookRepository.save(Mockito.any(Book.class))).thenAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            if ("2".equals(book.getIsbn())) {
+                throw duplicated;
+            }
+            return book;
+        });
+        String csv = "isbn,title,author\n1,A,X\n2,B,X\n";
+
+        // execução
+        BookImportResultDTO result = bookImportService.importBooks(stream(csv), BookImportFormat.CSV);
+
+        // verificações
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getDuplicated()).isEqualTo(1);
+        assertThat(result.getRejected()).extracting(BookImportRowDTO::getLine).containsExactly(3);
+        Mockito.verify(bookSearchIndex).index(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve listar as linhas rejeitadas até o limite e apenas contar as demais.")
+    public void importRejectedRowsLimitTest() throws Exception {
+        // cenário
+        bookImportService = new BookImportServiceImpl(bookRepository, bookSearchIndex, isbnFilter,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                new BusinessMetrics(new SimpleMeterRegistry()), 2, 2);
+        String ndjson = "not json\nnot json\nnot json\nnot json\n";
+
+        // execução
+        BookImportResultDTO result = bookImportService.importBooks(stream(ndjson), BookImportFormat.NDJSON);
+
+        // verificações
+        assertThat(result.getInvalid()).isEqualTo(4);
+        assertThat(result.getRejected()).extracting(BookImportRowDTO::getLine).containsExactly(1, 2);
+        assertThat(result.getRejectedOmitted()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negócio quando o CSV não tiver cabeçalho válido.")
+    public void importCsvInvalidHeaderTest() {
+        Throwable exception = catchThrowable(() -> bookImportService.importBooks(stream("a,b,c\n1,2,3\n"), BookImportFormat.CSV));
+
+        assertThat(exception).isInstanceOf(BussinessException.class);
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,107 @@
+package br.com.libraryapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookJsonCacheTest {
+
+    @Test
+    @DisplayName("Deve guardar e ler o JSON de um livro ocupando vários blocos.")
+    public void putAndGetTest() {
+        // cenário
+        BookJsonCache cache = new BookJsonCache(new SimpleMeterRegistry(), 1024, 16, 1);
+        byte[] json = json(1, 40);
+
+        // execução
+        cache.put(1, 3, json, cache.stamp(1));
+        BookJsonCache.Hit hit = cache.get(1);
+
+        // verificações
+        assertThat(hit.getVersion()).isEqualTo(3);
+        assertThat(Arrays.copyOf(hit.getBytes(), hit.getLength())).isEqualTo(json);
+        assertThat(cache.usedBytes()).isEqualTo(40);
+        assertThat(cache.get(2)).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve descartar os livros lidos há mais tempo quando o orçamento de bytes acaba.")
+    public void evictLeastRecentlyReadTest() {
+        // cenário
+        BookJsonCache cache = new BookJsonCache(new SimpleMeterRegistry(), 64, 16, 1);
+        cache.put(1, 0, json(1, 32), cache.stamp(1));
+        cache.put(2, 0, json(2, 32), cache.stamp(2));
+        cache.get(1);
+
+        // execução
+        cache.put(3, 0, json(3, 20), cache.stamp(3));
+
+        // verificações
+        assertThat(cache.get(2)).isNull();
+        assertThat(Arrays.copyOf(cache.get(1).getBytes(), 32)).isEqualTo(json(1, 32));
+        assertThat(Arrays.copyOf(cache.get(3).getBytes(), 20)).isEqualTo(json(3, 20));
+        assertThat(cache.usedBytes()).isEqualTo(52);
+    }
+
+    @Test
+    @DisplayName("Não deve guardar um JSON carregado antes de uma invalidação.")
+    public void stalePutIgnoredTest() {
+        // cenário
+        BookJsonCache cache = new BookJsonCache(new SimpleMeterRegistry(), 1024, 16, 1);
+        cache.put(1, 0, json(1, 10), cache.stamp(1));
+        long stamp = cache.stamp(1);
+
+        // execução
+        cache.evict(1);
+        cache.put(1, 0, json(1, 10), stamp);
+
+        // verificações
+        assertThat(cache.get(1)).isNull();
+        assertThat(cache.usedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Uma invalidação não deve descartar o JSON carregado de um livro de outro segmento.")
+    public void stripedStampTest() {
+        // cenário
+        BookJsonCache cache = new BookJsonCache(new SimpleMeterRegistry(), 1024, 16, 2);
+        long stampOfOne = cache.stamp(1);
+        long stampOfTwo = cache.stamp(2);
+
+        // execução
+        cache.evict(3);
+        cache.put(1, 0, json(1, 30), stampOfOne);
+        cache.put(2, 0, json(2, 30), stampOfTwo);
+
+        // verificações
+        assertThat(cache.get(1)).isNull();
+        assertThat(Arrays.copyOf(cache.get(2).getBytes(), 30)).isEqualTo(json(2, 30));
+        assertThat(cache.usedBytes()).isEqualTo(30);
+    }
+
+    @Test
+    @DisplayName("Não deve guardar nada quando desabilitado ou quando o JSON não cabe.")
+    public void disabledAndTooLargeTest() {
+        BookJsonCache disabled = new BookJsonCache(new SimpleMeterRegistry(), 0, 16, 1);
+        disabled.put(1, 0, json(1, 10), disabled.stamp(1));
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThat(disabled.get(1)).isNull();
+
+        BookJsonCache small = new BookJsonCache(new SimpleMeterRegistry(), 32, 16, 1);
+        small.put(1, 0, json(1, 33), small.stamp(1));
+        assertThat(small.get(1)).isNull();
+    }
+
+    private byte[] json(int id, int length) {
+        StringBuilder json = new StringBuilder("{\"id\":" + id + ",\"title\":\"");
+        while (json.length() < length - 2) {
+            json.append((char) ('a' + json.length() % 26));
+        }
+        return json.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
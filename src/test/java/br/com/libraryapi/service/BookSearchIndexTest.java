@@ -0,0 +1,149 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.BookRepository;
+import br.com.libraryapi.repository.KeysetSlice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookSearchIndexTest {
+
+    private BookRepository bookRepository;
+
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        bookRepository = Mockito.mock(BookRepository.class);
+        bookSearchIndex = new BookSearchIndex(bookRepository, 100);
+        bookSearchIndex.index(book(1, "A Identidade Bourne", "Robert Ludlum", "111"));
+        bookSearchIndex.index(book(2, "O Ultimato Bourne", "Robert Ludlum", "222"));
+        bookSearchIndex.index(book(3, "Bourne", "Eric Van Lustbader", "333"));
+        bookSearchIndex.index(book(4, "Dom Casmurro", "Machado de Assis", "444"));
+    }
+
+    @Test
+    @DisplayName("Deve encontrar livros que contêm o termo, ignorando maiúsculas, ordenados por relevância.")
+    public void searchRankedTest() {
+        // execução
+        Page<Integer> result = bookSearchIndex.search(Book.builder().title("BOURNE").build(), PageRequest.of(0, 10));
+
+        // verificações
+        assertThat(result.getContent()).containsExactly(3, 1, 2);
+        assertThat(result.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve combinar os filtros de título e autor.")
+    public void searchMultipleFieldsTest() {
+        // execução
+        Page<Integer> result = bookSearchIndex.search(Book.builder().title("bourne").author("ludlum").build(),
+                                                      PageRequest.of(0, 10));
+
+        // verificações
+        assertThat(result.getContent()).containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("Deve encontrar termos menores que um trigrama e dentro de palavras.")
+    public void searchShortAndInfixTest() {
+        assertThat(bookSearchIndex.search(Book.builder().isbn("4").build(), PageRequest.of(0, 10)).getContent())
+                .containsExactly(4);
+        assertThat(bookSearchIndex.search(Book.builder().title("urn").build(), PageRequest.of(0, 10)).getContent())
+                .containsExactly(1, 2, 3);
+    }
+
+    @Test
+    @DisplayName("Deve paginar os resultados.")
+    public void searchPageTest() {
+        // execução
+        Page<Integer> result = bookSearchIndex.search(Book.builder().title("bourne").build(), PageRequest.of(1, 2));
+
+        // verificações
+        assertThat(result.getContent()).containsExactly(2);
+        assertThat(result.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizações e remoções de livros.")
+    public void updateAndRemoveTest() {
+        // execução
+        bookSearchIndex.index(book(1, "Memórias Póstumas", "Machado de Assis", "111"));
+        bookSearchIndex.remove(2);
+
+        // verificações
+        assertThat(bookSearchIndex.search(Book.builder().title("bourne").build(), PageRequest.of(0, 10)).getContent())
+                .containsExactly(3);
+        assertThat(bookSearchIndex.search(Book.builder().author("machado").build(), PageRequest.of(0, 10)).getContent())
+                .containsExactly(1, 4);
+    }
+
+    @Test
+    @DisplayName("Deve atender buscas somente depois de carregado.")
+    public void supportsAfterRebuildTest() {
+        // cenário
+        Book filter = Book.builder().title("bourne").build();
+        Mockito.when(bookRepository.findSlice(Mockito.any(Example.class), Mockito.isNull(), Mockito.any(Sort.class), Mockito.eq(100)))
+                .thenReturn(new KeysetSlice<Book>(Arrays.asList(book(5, "Bourne", "Ludlum", "555")), false, null));
+
+        // verificações
+        assertThat(bookSearchIndex.supports(filter, PageRequest.of(0, 10))).isFalse();
+        bookSearchIndex.rebuild();
+        assertThat(bookSearchIndex.supports(filter, PageRequest.of(0, 10))).isTrue();
+        assertThat(bookSearchIndex.supports(filter, PageRequest.of(0, 10, Sort.by("title")))).isFalse();
+        assertThat(bookSearchIndex.search(filter, PageRequest.of(0, 10)).getContent()).containsExactly(3, 5, 1, 2);
+    }
+
+    @Test
+    @DisplayName("Não deve sobrescrever com a leitura da recarga os livros alterados ou removidos durante ela.")
+    public void changesDuringRebuildTest() {
+        // cenário
+        BookSearchIndex index = new BookSearchIndex(bookRepository, 100);
+        Mockito.when(bookRepository.findSlice(Mockito.any(Example.class), Mockito.isNull(), Mockito.any(Sort.class), Mockito.eq(100)))
+                .thenAnswer(invocation -> {
+                    // the slice was read, then book 1 is updated and book 2 deleted before it is indexed
+                    index.index(book(1, "Memórias Póstumas", "Machado de Assis", "111"));
+                    index.remove(2);
+                    return new KeysetSlice<Book>(Arrays.asList(book(1, "A Identidade Bourne", "Robert Ludlum", "111"),
+                                                               book(2, "O Ultimato Bourne", "Robert Ludlum", "222")),
+                                                 false, null);
+                });
+
+        // execução
+        index.rebuild();
+
+        // verificações
+        assertThat(index.get(1)).hasValueSatisfying(book -> assertThat(book.getTitle()).isEqualTo("Memórias Póstumas"));
+        assertThat(index.get(2)).isEmpty();
+        assertThat(index.search(Book.builder().title("bourne").build(), PageRequest.of(0, 10)).getContent()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve ler os livros indexados como cadastrados, ordenados por id.")
+    public void readCatalogTest() {
+        // execução
+        bookSearchIndex.index(book(4, "Dom Casmurro", "Machado de Assis", "4444"));
+
+        // verificações
+        assertThat(bookSearchIndex.get(4)).hasValueSatisfying(book -> {
+            assertThat(book.getTitle()).isEqualTo("Dom Casmurro");
+            assertThat(book.getIsbn()).isEqualTo("4444");
+        });
+        assertThat(bookSearchIndex.get(9)).isEmpty();
+        assertThat(bookSearchIndex.all()).extracting(Book::getId).containsExactly(1, 2, 3, 4);
+    }
+
+    private Book book(Integer id, String title, String author, String isbn) {
+        return Book.builder().id(id).title(title).author(author).isbn(isbn).build();
+    }
+}
@@ -0,0 +1,183 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.repository.BookRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs against the cache manager Spring Boot builds from application.properties, i.e. the bounded Caffeine caches
+ * recording statistics.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(classes = BookServiceCacheTest.CacheTestConfig.class)
+public class BookServiceCacheTest {
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    BookSearchIndex bookSearchIndex;
+
+    @MockBean
+    BookJsonCache bookJsonCache;
+
+    @MockBean
+    IsbnBloomFilter isbnFilter;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("Deve obter um livro por id do cache na segunda consulta.")
+    public void getByIdCachedTest() {
+        // cenário
+        Book book = createNewBook();
+        Mockito.when(bookRepository.findById(11)).thenReturn(Optional.of(book));
+
+        // execução
+        bookService.getById(11);
+        Optional<Book> foundBook = bookService.getById(11);
+
+        // verificações
+        assertThat(foundBook).contains(book);
+        verify(bookRepository, times(1)).findById(11);
+    }
+
+    @Test
+    @DisplayName("Deve usar caches Caffeine limitados e com estatísticas.")
+    public void caffeineConfigurationTest() {
+        // cenário
+        Mockito.when(bookRepository.findById(11)).thenReturn(Optional.of(createNewBook()));
+
+        // execução
+        bookService.getById(11);
+        bookService.getById(11);
+
+        // verificações
+        assertThat(cacheManager).isInstanceOf(CaffeineCacheManager.class);
+        assertThat(cacheManager.getCacheNames()).containsExactlyInAnyOrder("books", "booksByIsbn");
+        @SuppressWarnings("unchecked")
+        Cache<Object, Object> books = (Cache<Object, Object>) cacheManager.getCache("books").getNativeCache();
+        assertThat(books.policy().eviction()).hasValueSatisfying(eviction -> assertThat(eviction.getMaximum()).isEqualTo(10000));
+        assertThat(books.stats().hitCount()).isEqualTo(1);
+        assertThat(books.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Não deve guardar no cache um livro não encontrado pelo isbn.")
+    public void getBookByIsbnMissNotCachedTest() {
+        // cenário
+        Mockito.when(bookRepository.findByIsbn("12345")).thenReturn(Optional.empty());
+
+        // execução
+        bookService.getBookByIsbn("12345");
+        bookService.getBookByIsbn("12345");
+
+        // verificações
+        verify(bookRepository, times(2)).findByIsbn("12345");
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache ao atualizar um livro.")
+    public void updateEvictsCacheTest() {
+        // cenário
+        Book book = createNewBook();
+        Mockito.when(bookRepository.findById(11)).thenReturn(Optional.of(book));
+        Mockito.when(bookRepository.findByIsbn("12345")).thenReturn(Optional.of(book));
+        Mockito.when(bookRepository.save(book)).thenReturn(book);
+        bookService.getById(11);
+        bookService.getBookByIsbn("12345");
+
+        // execução
+        bookService.update(book);
+        bookService.getById(11);
+        bookService.getBookByIsbn("12345");
+
+        // verificações
+        verify(bookRepository, times(2)).findById(11);
+        verify(bookRepository, times(2)).findByIsbn("12345");
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o isbn anterior no cache quando a atualização muda o isbn.")
+    public void updateChangedIsbnEvictsCacheTest() {
+        // cenário
+        Book book = createNewBook();
+        Book changed = book.toBuilder().isbn("54321").build();
+        Mockito.when(bookRepository.findByIsbn("12345")).thenReturn(Optional.of(book)).thenReturn(Optional.empty());
+        Mockito.when(bookRepository.save(changed)).thenReturn(changed);
+        bookService.getBookByIsbn("12345");
+
+        // execução
+        bookService.update(changed);
+        Optional<Book> found = bookService.getBookByIsbn("12345");
+
+        // verificações
+        assertThat(found).isEmpty();
+        verify(bookRepository, times(2)).findByIsbn("12345");
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache ao deletar um livro.")
+    public void deleteEvictsCacheTest() {
+        // cenário
+        Book book = createNewBook();
+        Mockito.when(bookRepository.findById(11)).thenReturn(Optional.of(book));
+        bookService.getById(11);
+
+        // execução
+        bookService.delete(book);
+        bookService.getById(11);
+
+        // verificações
+        verify(bookRepository, times(2)).findById(11);
+    }
+
+    private Book createNewBook() {
+        return Book.builder().id(11).author("Robert Ludlum").title("A Identidade Bourne").isbn("12345").build();
+    }
+
+    @Configuration
+    @EnableCaching
+    @ImportAutoConfiguration(CacheAutoConfiguration.class)
+    static class CacheTestConfig {
+
+        @Bean
+        public BookService bookService(BookRepository bookRepository, BookSearchIndex bookSearchIndex,
+                                       BookJsonCache bookJsonCache, IsbnBloomFilter isbnFilter) {
+            return new BookServiceImpl(bookRepository, bookSearchIndex, bookJsonCache, isbnFilter);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -35,9 +36,18 @@ public class BookServiceTest {
     @MockBean
     BookRepository bookRepository;
 
+    @MockBean
+    BookSearchIndex bookSearchIndex;
+
+    @MockBean
+    BookJsonCache bookJsonCache;
+
+    @MockBean
+    IsbnBloomFilter isbnFilter;
+
     @BeforeEach
     public void setUp() {
-        this.bookService = new BookServiceImpl(bookRepository);
+        this.bookService = new BookServiceImpl(bookRepository, bookSearchIndex, bookJsonCache, isbnFilter);
 
     }
 
@@ -58,6 +68,7 @@ public class BookServiceTest {
         Book savedBook = bookService.save(book);
 
         // verificação
+        Mockito.verify(bookSearchIndex).index(savedBook);
         assertThat(savedBook.getId()).isNotNull();
         assertThat(savedBook.getIsbn()).isEqualTo("12345");
         assertThat(savedBook.getTitle()).isEqualTo("A Identidade Bourne");
@@ -127,6 +138,7 @@ public class BookServiceTest {
 
         // verificação
         Mockito.verify(bookRepository, Mockito.times(1)).delete(book);
+        Mockito.verify(bookJsonCache).evict(11);
     }
 
     @Test
@@ -162,6 +174,8 @@ public class BookServiceTest {
         assertThat(book.getTitle()).isEqualTo(updatedBook.getTitle());
         assertThat(book.getAuthor()).isEqualTo(updatedBook.getAuthor());
         assertThat(book.getIsbn()).isEqualTo(updatedBook.getIsbn());
+        Mockito.verify(bookJsonCache).evict(id);
+        Mockito.verify(isbnFilter).add(updatedBook.getIsbn());
     }
 
     @Test
@@ -198,6 +212,87 @@ public class BookServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
 
+    @Test
+    @DisplayName("Deve filtrar livros pelo índice de busca, mantendo a ordem de relevância.")
+    public void findBookWithSearchIndexTest() {
+        // cenário
+        Book filter = Book.builder().title("bourne").build();
+        PageRequest pageRequest = PageRequest.of(0, 2);
+        Book first = createNewBook();
+        first.setId(2);
+        Book second = createNewBook();
+        second.setId(1);
+        Mockito.when(bookSearchIndex.supports(filter, pageRequest)).thenReturn(true);
+        Mockito.when(bookSearchIndex.search(filter, pageRequest))
+                .thenReturn(new PageImpl<Integer>(Arrays.asList(2, 1), pageRequest, 5));
+        Mockito.when(bookRepository.findAllById(Arrays.asList(2, 1))).thenReturn(Arrays.asList(second, first));
+
+        // execução
+        Page<Book> result = bookService.find(filter, pageRequest);
+
+        // validações
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(result.getContent()).containsExactly(first, second);
+        Mockito.verify(bookRepository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("Deve descontar do total os livros do índice que não existem mais no banco.")
+    public void findBookWithSearchIndexMissingRowTest() {
+        // cenário
+        Book filter = Book.builder().title("bourne").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Book first = createNewBook();
+        first.setId(2);
+        Mockito.when(bookSearchIndex.supports(filter, pageRequest)).thenReturn(true);
+        Mockito.when(bookSearchIndex.search(filter, pageRequest))
+                .thenReturn(new PageImpl<Integer>(Arrays.asList(2, 1), pageRequest, 2));
+        Mockito.when(bookRepository.findAllById(Arrays.asList(2, 1))).thenReturn(Arrays.asList(first));
+
+        // execução
+        Page<Book> result = bookService.find(filter, pageRequest);
+
+        // validações
+        assertThat(result.getTotalElements()).isEqualTo(1);
+        assertThat(result.getContent()).containsExactly(first);
+    }
+
+    @Test
+    @DisplayName("Não deve consultar o banco quando o filtro garante que o isbn não existe.")
+    public void isbnDefinitelyAbsentTest() {
+        // cenário
+        Book book = createNewBook();
+        Mockito.when(isbnFilter.isDefinitelyAbsent("12345")).thenReturn(true);
+        Mockito.when(bookRepository.save(book)).thenReturn(Book.builder().id(11).isbn("12345").build());
+
+        // execução
+        Optional<Book> found = bookService.getBookByIsbn("12345");
+        bookService.save(book);
+
+        // verificações
+        assertThat(found).isEmpty();
+        Mockito.verify(bookRepository, Mockito.never()).findByIsbn(Mockito.anyString());
+        Mockito.verify(bookRepository, Mockito.never()).existsByIsbn(Mockito.anyString());
+        Mockito.verify(isbnFilter).add("12345");
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negócio quando o índice único recusar um isbn que o filtro descartou.")
+    public void isbnFilterFalseNegativeTest() {
+        // cenário
+        Book book = createNewBook();
+        Mockito.when(isbnFilter.isDefinitelyAbsent("12345")).thenReturn(true);
+        Mockito.when(bookRepository.save(book)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new RuntimeException("Unique index or primary key violation: \"PUBLIC.UX_BOOK_ISBN_INDEX_2 ON PUBLIC.BOOK(ISBN)\"")));
+
+        // execução
+        Throwable exception = Assertions.catchThrowable(() -> bookService.save(book));
+
+        // verificações
+        assertThat(exception).isInstanceOf(BussinessException.class).hasMessage("ISBN já cadastrado.");
+        Mockito.verify(isbnFilter, Mockito.never()).add(Mockito.anyString());
+    }
+
     @Test
     @DisplayName("Deve obter um livro pelo isbn.")
     public void getBookByIsbnTest() {
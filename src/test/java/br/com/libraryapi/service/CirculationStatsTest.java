@@ -0,0 +1,155 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CirculationStatsTest {
+
+    private LoanRepository loanRepository;
+
+    private CirculationStats circulationStats;
+
+    @BeforeEach
+    public void setUp() {
+        loanRepository = Mockito.mock(LoanRepository.class);
+        circulationStats = new CirculationStats(loanRepository, Mockito.mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @DisplayName("Deve carregar os contadores do banco, separando os empréstimos atrasados.")
+    public void reconcileTest() {
+        // cenário
+        LocalDate today = LocalDate.now();
+        Mockito.when(loanRepository.countByBook()).thenReturn(Arrays.asList(
+                new Object[]{11, 5L},
+                new Object[]{12, 2L}));
+        Mockito.when(loanRepository.countOpenByBookAndLoanDate()).thenReturn(Arrays.asList(
+                new Object[]{11, today, 2L},
+                new Object[]{11, today.minusDays(10), 1L},
+                new Object[]{12, today.minusDays(4), 1L},
+                new Object[]{12, today.minusDays(3), 1L}));
+
+        // execução
+        assertThat(circulationStats.isReady()).isFalse();
+        circulationStats.reconcile();
+
+        // verificações
+        assertThat(circulationStats.isReady()).isTrue();
+        assertThat(circulationStats.activeLoans()).isEqualTo(5);
+        assertThat(circulationStats.overdueLoans()).isEqualTo(2);
+        assertThat(circulationStats.totalLoans()).isEqualTo(7);
+        assertThat(circulationStats.activeLoans(11)).isEqualTo(3);
+        assertThat(circulationStats.totalLoans(12)).isEqualTo(2);
+        assertThat(circulationStats.activeLoans(99)).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve atualizar os contadores a cada empréstimo, devolução e reabertura.")
+    public void loanEventsTest() {
+        // cenário
+        Mockito.when(loanRepository.countByBook()).thenReturn(Collections.emptyList());
+        Mockito.when(loanRepository.countOpenByBookAndLoanDate()).thenReturn(Collections.emptyList());
+        circulationStats.reconcile();
+        Loan recent = loan(11, LocalDate.now());
+        Loan late = loan(11, LocalDate.now().minusDays(5));
+
+        // execução
+        circulationStats.loanCreated(recent);
+        circulationStats.loanCreated(late);
+        circulationStats.loanReturned(recent);
+        circulationStats.loanReopened(recent);
+        circulationStats.loanReturned(late);
+
+        // verificações
+        assertThat(circulationStats.activeLoans()).isEqualTo(1);
+        assertThat(circulationStats.overdueLoans()).isZero();
+        assertThat(circulationStats.totalLoans()).isEqualTo(2);
+        assertThat(circulationStats.activeLoans(11)).isEqualTo(1);
+        assertThat(circulationStats.totalLoans(11)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve contar o empréstimo somente depois do commit da transação.")
+    public void afterCommitTest() {
+        // cenário
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // execução
+            circulationStats.loanCreated(loan(11, LocalDate.now()));
+
+            // verificações
+            assertThat(circulationStats.activeLoans()).isZero();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertThat(circulationStats.activeLoans()).isEqualTo(1);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Não deve perder empréstimos feitos enquanto os contadores são recarregados.")
+    public void eventsDuringReconcileTest() {
+        // cenário: o empréstimo é feito depois da leitura do banco
+        Mockito.when(loanRepository.countByBook()).thenReturn(Collections.emptyList());
+        Mockito.when(loanRepository.countOpenByBookAndLoanDate()).thenAnswer(invocation -> {
+            circulationStats.loanCreated(loan(1, 11, LocalDate.now()));
+            return Collections.emptyList();
+        });
+        Mockito.when(loanRepository.findReturnedByIds(Mockito.anyCollection())).thenReturn(Collections.emptyList());
+
+        // execução
+        circulationStats.reconcile();
+
+        // verificações
+        assertThat(circulationStats.activeLoans()).isEqualTo(1);
+        assertThat(circulationStats.totalLoans(11)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Não deve contar duas vezes os eventos que a leitura do banco já enxergou.")
+    public void eventsSeenByReconcileTest() {
+        // cenário: empréstimo e devolução confirmados antes da leitura, empréstimo 3 confirmado depois
+        LocalDate today = LocalDate.now();
+        Mockito.when(loanRepository.countByBook()).thenAnswer(invocation -> {
+            circulationStats.loanCreated(loan(1, 11, today));
+            circulationStats.loanReturned(loan(2, 11, today));
+            circulationStats.loanCreated(loan(3, 11, today));
+            return Collections.singletonList(new Object[]{11, 2L});
+        });
+        Mockito.when(loanRepository.countOpenByBookAndLoanDate())
+               .thenReturn(Collections.singletonList(new Object[]{11, today, 1L}));
+        Mockito.when(loanRepository.findReturnedByIds(Mockito.anyCollection())).thenReturn(Arrays.asList(
+                new Object[]{1, null},
+                new Object[]{2, true}));
+
+        // execução
+        circulationStats.reconcile();
+
+        // verificações
+        assertThat(circulationStats.totalLoans()).isEqualTo(3);
+        assertThat(circulationStats.activeLoans()).isEqualTo(2);
+        assertThat(circulationStats.activeLoans(11)).isEqualTo(2);
+    }
+
+    private Loan loan(Integer bookId, LocalDate loanDate) {
+        return loan(null, bookId, loanDate);
+    }
+
+    private Loan loan(Integer id, Integer bookId, LocalDate loanDate) {
+        return Loan.builder().id(id).book(Book.builder().id(bookId).build()).loanDate(loanDate).build();
+    }
+}
@@ -0,0 +1,89 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Customer;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class CustomerServiceTest {
+
+    @MockBean
+    private CustomerRepository customerRepository;
+
+    private CustomerService customerService;
+
+    @BeforeEach
+    public void setUp() {
+        customerService = new CustomerServiceImpl(customerRepository);
+    }
+
+    @Test
+    @DisplayName("Deve resolver os clientes dos empréstimos com uma consulta e um único lote de inserções.")
+    public void resolveAllTest() {
+        // cenário
+        Loan known = Loan.builder().customer("Alex").customerEmail("alex@mail.com").build();
+        Loan newByEmail = Loan.builder().customer("Maria").customerEmail("maria@mail.com").build();
+        Loan sameNewByEmail = Loan.builder().customer("Maria").customerEmail("maria@mail.com").build();
+        Loan newByName = Loan.builder().customer("Joel").build();
+        Loan anonymous = Loan.builder().build();
+        when(customerRepository.findByEmailIn(Arrays.asList("alex@mail.com", "maria@mail.com")))
+                .thenReturn(Collections.singletonList(Customer.builder().id(1).name("Alex").email("alex@mail.com").build()));
+        when(customerRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+            for (int i = 0; i < customers.size(); i++) {
+                customers.get(i).setId(10 + i);
+            }
+            return customers;
+        });
+
+        // execução
+        customerService.resolveAll(Arrays.asList(known, newByEmail, sameNewByEmail, newByName, anonymous));
+
+        // verificações
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Customer>> saved = ArgumentCaptor.forClass(List.class);
+        verify(customerRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(Customer::getName).containsExactly("Maria", "Joel");
+        verify(customerRepository).findByNameInAndEmailIsNullOrderById(Collections.singletonList("Joel"));
+        verify(customerRepository, never()).findByEmail(anyString());
+        verify(customerRepository, never()).saveAndFlush(any(Customer.class));
+        assertThat(known.getCustomerId()).isEqualTo(1);
+        assertThat(newByEmail.getCustomerId()).isEqualTo(10);
+        assertThat(sameNewByEmail.getCustomerId()).isEqualTo(10);
+        assertThat(newByName.getCustomerId()).isEqualTo(11);
+        assertThat(anonymous.getCustomerId()).isNull();
+    }
+
+    @Test
+    @DisplayName("Não deve gravar nada quando todos os clientes já existem.")
+    public void resolveAllExistingTest() {
+        // cenário
+        Loan loan = Loan.builder().customer("Joel").build();
+        when(customerRepository.findByNameInAndEmailIsNullOrderById(Collections.singletonList("Joel")))
+                .thenReturn(Arrays.asList(Customer.builder().id(3).name("Joel").build(), Customer.builder().id(4).name("Joel").build()));
+
+        // execução
+        customerService.resolveAll(Collections.singletonList(loan));
+
+        // verificações
+        assertThat(loan.getCustomerId()).isEqualTo(3);
+        verify(customerRepository, never()).saveAll(anyList());
+        verify(customerRepository, never()).findByEmailIn(anyList());
+    }
+}
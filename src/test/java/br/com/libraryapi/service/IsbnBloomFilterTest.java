@@ -0,0 +1,115 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IsbnBloomFilterTest {
+
+    private BookRepository bookRepository;
+
+    private IsbnBloomFilter isbnFilter;
+
+    @BeforeEach
+    public void setUp() {
+        bookRepository = Mockito.mock(BookRepository.class);
+        isbnFilter = new IsbnBloomFilter(bookRepository, new SimpleMeterRegistry(), 0.01, 100, 2);
+    }
+
+    @Test
+    @DisplayName("Não deve descartar nenhum isbn antes de carregado.")
+    public void notReadyTest() {
+        assertThat(isbnFilter.isDefinitelyAbsent("12345")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve carregar os isbns em lotes e descartar apenas os que não existem.")
+    public void rebuildTest() {
+        // cenário
+        Mockito.when(bookRepository.count()).thenReturn(3L);
+        Mockito.when(bookRepository.findIsbnsAfter(0, PageRequest.of(0, 2)))
+               .thenReturn(Arrays.asList(new Object[]{1, "111"}, new Object[]{2, "222"}));
+        Mockito.when(bookRepository.findIsbnsAfter(2, PageRequest.of(0, 2)))
+               .thenReturn(Collections.singletonList(new Object[]{5, "555"}));
+
+        // execução
+        isbnFilter.rebuild();
+
+        // verificações
+        assertThat(isbnFilter.isDefinitelyAbsent("111")).isFalse();
+        assertThat(isbnFilter.isDefinitelyAbsent("222")).isFalse();
+        assertThat(isbnFilter.isDefinitelyAbsent("555")).isFalse();
+        assertThat(isbnFilter.isDefinitelyAbsent("999")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve manter os isbns adicionados enquanto o filtro é reconstruído.")
+    public void addDuringRebuildTest() {
+        // cenário
+        Mockito.when(bookRepository.findIsbnsAfter(0, PageRequest.of(0, 2))).thenAnswer(invocation -> {
+            isbnFilter.add("777");
+            return Collections.singletonList(new Object[]{1, "111"});
+        });
+
+        // execução
+        isbnFilter.rebuild();
+
+        // verificações
+        assertThat(isbnFilter.isDefinitelyAbsent("111")).isFalse();
+        assertThat(isbnFilter.isDefinitelyAbsent("777")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve crescer além da capacidade inicial sem falsos negativos e dentro da taxa de falsos positivos.")
+    public void scaleTest() {
+        // cenário
+        Mockito.when(bookRepository.findIsbnsAfter(0, PageRequest.of(0, 2))).thenReturn(new ArrayList<>());
+        isbnFilter.rebuild();
+
+        // execução
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            isbns.add("978" + i);
+            isbnFilter.add("978" + i);
+        }
+
+        // verificações
+        assertThat(isbns).noneMatch(isbnFilter::isDefinitelyAbsent);
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (!isbnFilter.isDefinitelyAbsent("979" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives / 10000.0).isLessThan(0.02);
+        assertThat(isbnFilter.expectedFpp()).isLessThan(0.02);
+    }
+
+    @Test
+    @DisplayName("Deve medir a taxa de falsos positivos observada.")
+    public void observedFppTest() {
+        // cenário
+        Mockito.when(bookRepository.findIsbnsAfter(0, PageRequest.of(0, 2))).thenReturn(new ArrayList<>());
+        isbnFilter.rebuild();
+
+        // execução
+        isbnFilter.isDefinitelyAbsent("111");
+        isbnFilter.isDefinitelyAbsent("222");
+        isbnFilter.isDefinitelyAbsent("333");
+        isbnFilter.recordLookup(false);
+
+        // verificações
+        assertThat(isbnFilter.observedFpp()).isEqualTo(0.25);
+    }
+}
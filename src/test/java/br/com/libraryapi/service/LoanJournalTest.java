@@ -0,0 +1,196 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoanJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LoanJournal loanJournal;
+
+    @AfterEach
+    public void tearDown() {
+        if (loanJournal != null) {
+            loanJournal.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve registrar os eventos dos empréstimos e reproduzi-los em ordem.")
+    public void appendAndReplayTest() throws IOException {
+        // cenário
+        loanJournal = open(1024 * 1024, 0);
+        Loan loan = loan(1, 11, 21);
+
+        // execução
+        loanJournal.checkedOut(loan);
+        loanJournal.returned(loan);
+        loanJournal.reopened(loan);
+
+        // verificações
+        List<LoanEvent> events = new ArrayList<>();
+        long last = loanJournal.replay(0, events::add);
+        assertThat(last).isEqualTo(3);
+        assertThat(events).extracting(LoanEvent::getType)
+                          .containsExactly(LoanEvent.Type.CHECKOUT, LoanEvent.Type.RETURN, LoanEvent.Type.REOPEN);
+        assertThat(events.get(0).getSeq()).isEqualTo(1);
+        assertThat(events.get(0).getLoanId()).isEqualTo(1);
+        assertThat(events.get(0).getBookId()).isEqualTo(11);
+        assertThat(events.get(0).getCustomerId()).isEqualTo(21);
+        assertThat(events.get(0).getLoanDate()).isEqualTo(LocalDate.now());
+        assertThat(loanJournal.read(1, 1)).extracting(LoanEvent::getSeq).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Deve iniciar um novo segmento quando o atual estiver cheio.")
+    public void rollSegmentTest() throws IOException {
+        // cenário
+        loanJournal = open(LoanJournal.HEADER_BYTES + 2 * LoanJournal.RECORD_BYTES, 0);
+
+        // execução
+        for (int i = 1; i <= 5; i++) {
+            loanJournal.checkedOut(loan(i, 11, null));
+        }
+
+        // verificações
+        assertThat(segments()).isEqualTo(3);
+        List<LoanEvent> events = new ArrayList<>();
+        loanJournal.replay(2, events::add);
+        assertThat(events).extracting(LoanEvent::getSeq).containsExactly(3L, 4L, 5L);
+        assertThat(events.get(0).getCustomerId()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve continuar a sequência dos eventos ao reabrir o diário.")
+    public void reopenTest() throws IOException {
+        // cenário
+        int segmentBytes = LoanJournal.HEADER_BYTES + 2 * LoanJournal.RECORD_BYTES;
+        loanJournal = open(segmentBytes, 0);
+        loanJournal.checkedOut(loan(1, 11, 21));
+        loanJournal.checkedOut(loan(2, 11, 21));
+        loanJournal.checkedOut(loan(3, 12, 21));
+        loanJournal.close();
+
+        // execução
+        loanJournal = open(segmentBytes, 0);
+        loanJournal.returned(loan(1, 11, 21));
+
+        // verificações
+        assertThat(loanJournal.lastSeq()).isEqualTo(4);
+        assertThat(loanJournal.read(0, 10)).extracting(LoanEvent::getSeq).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    @DisplayName("Deve registrar a falha sem propagá-la quando não conseguir gravar o evento.")
+    public void writeFailureTest() throws IOException {
+        // cenário
+        Path journalDirectory = directory.resolve("journal");
+        loanJournal = new LoanJournal(meterRegistry, journalDirectory.toString(),
+                                      LoanJournal.HEADER_BYTES + LoanJournal.RECORD_BYTES, 0);
+        loanJournal.open();
+        loanJournal.checkedOut(loan(1, 11, 21));
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(journalDirectory);
+
+        // execução
+        loanJournal.checkedOut(loan(2, 11, 21));
+
+        // verificações
+        assertThat(meterRegistry.get("library.loans.journal.failures").counter().count()).isEqualTo(1);
+        assertThat(loanJournal.lastSeq()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve manter apenas o último evento de cada empréstimo ao compactar os segmentos fechados.")
+    public void compactTest() throws IOException {
+        // cenário
+        loanJournal = open(LoanJournal.HEADER_BYTES + 2 * LoanJournal.RECORD_BYTES, 2);
+        Loan first = loan(1, 11, 21);
+        Loan second = loan(2, 12, 21);
+        loanJournal.checkedOut(first);
+        loanJournal.returned(first);
+        loanJournal.checkedOut(second);
+        loanJournal.returned(second);
+        loanJournal.reopened(first);
+
+        // execução
+        loanJournal.compact();
+
+        // verificações
+        assertThat(segments()).isEqualTo(2);
+        List<LoanEvent> events = loanJournal.read(0, 10);
+        assertThat(events).extracting(LoanEvent::getSeq).containsExactly(2L, 4L, 5L);
+        assertThat(events).extracting(LoanEvent::getType)
+                          .containsExactly(LoanEvent.Type.RETURN, LoanEvent.Type.RETURN, LoanEvent.Type.REOPEN);
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir os empréstimos abertos e o histórico dos clientes a partir do diário.")
+    public void projectionsTest() throws IOException {
+        // cenário
+        loanJournal = open(1024 * 1024, 0);
+        LoanJournalProjections projections = new LoanJournalProjections(loanJournal, 2);
+        loanJournal.checkedOut(loan(1, 11, 21));
+        loanJournal.checkedOut(loan(2, 11, 21));
+        loanJournal.checkedOut(loan(3, 12, 21));
+        loanJournal.returned(loan(1, 11, 21));
+
+        // execução
+        projections.rebuild();
+        loanJournal.checkedOut(loan(4, 11, 22));
+
+        // verificações
+        assertThat(projections.openLoans(11)).isEqualTo(2);
+        assertThat(projections.openLoans(12)).isEqualTo(1);
+        assertThat(projections.openLoans(13)).isZero();
+        assertThat(projections.history(21)).extracting(LoanEvent::getLoanId).containsExactly(3, 2);
+        assertThat(projections.history(22)).extracting(LoanEvent::getLoanId).containsExactly(4);
+        assertThat(projections.history(23)).isEmpty();
+    }
+
+    private LoanJournal open(int segmentBytes, int compactMinSegments) throws IOException {
+        LoanJournal journal = new LoanJournal(meterRegistry, directory.toString(), segmentBytes,
+                                              compactMinSegments);
+        journal.open();
+        return journal;
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static Loan loan(Integer id, Integer bookId, Integer customerId) {
+        return Loan.builder()
+                   .id(id)
+                   .book(Book.builder().id(bookId).build())
+                   .customerId(customerId)
+                   .loanDate(LocalDate.now())
+                   .build();
+    }
+}
@@ -0,0 +1,172 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.exception.BussinessException;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanCheckout;
+import br.com.libraryapi.repository.BookRepository;
+import br.com.libraryapi.repository.CustomerRepository;
+import br.com.libraryapi.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many threads fight for the copies of one hot title. Runs outside of a test transaction so every
+ * checkout commits and competes with the others, like concurrent requests would.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({LoanServiceImpl.class, CirculationStats.class, CustomerServiceImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+public class LoanServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    private static final int COPIES = 5;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Não deve emprestar mais exemplares do que existem sob concorrência.")
+    public void concurrentCheckoutTest() throws Exception {
+        // cenário
+        Book book = bookRepository.save(Book.builder().title("A Identidade Bourne").author("Robert Ludlum")
+                                            .isbn("12345").copies(COPIES).build());
+        AtomicInteger loaned = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        // execução
+        long elapsed = runConcurrently(() -> {
+            try {
+                loanService.save(Loan.builder().book(book).customer("Alex").loanDate(LocalDate.now()).build());
+                loaned.incrementAndGet();
+            } catch (BussinessException e) {
+                refused.incrementAndGet();
+            }
+        });
+
+        // verificações
+        int total = THREADS * ATTEMPTS_PER_THREAD;
+        log.info("{} checkouts of one title by {} threads in {} ms ({} ops/s)",
+                 total, THREADS, elapsed, total * 1000L / Math.max(elapsed, 1));
+        assertThat(loaned.get()).isEqualTo(COPIES);
+        assertThat(refused.get()).isEqualTo(total - COPIES);
+        assertThat(loanRepository.count()).isEqualTo(COPIES);
+        assertThat(bookRepository.findAvailableCopies(book.getId())).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Deve devolver cada exemplar uma única vez sob concorrência.")
+    public void concurrentReturnTest() throws Exception {
+        // cenário
+        Book book = bookRepository.save(Book.builder().title("A Identidade Bourne").author("Robert Ludlum")
+                                            .isbn("12345").copies(COPIES).build());
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < COPIES; i++) {
+            loans.add(loanService.save(Loan.builder().book(book).customer("Alex").loanDate(LocalDate.now()).build()));
+        }
+        AtomicInteger next = new AtomicInteger();
+
+        // execução: every loan is returned many times at once
+        runConcurrently(() -> {
+            Loan loan = loans.get(next.getAndIncrement() % COPIES);
+            loanService.update(Loan.builder().id(loan.getId()).book(book).customer("Alex")
+                                   .loanDate(loan.getLoanDate()).returned(true).build());
+        });
+
+        // verificações
+        assertThat(bookRepository.findAvailableCopies(book.getId())).isEqualTo(COPIES);
+    }
+
+    @Test
+    @DisplayName("Deve criar no lote apenas os clientes dos empréstimos aceitos.")
+    public void saveAllCustomersTest() {
+        // cenário
+        Book book = bookRepository.save(Book.builder().title("A Identidade Bourne").author("Robert Ludlum")
+                                            .isbn("12345").copies(2).build());
+        Loan first = Loan.builder().book(book).customer("Alex").customerEmail("alex@mail.com").loanDate(LocalDate.now()).build();
+        Loan second = Loan.builder().book(book).customer("Alex").customerEmail("alex@mail.com").loanDate(LocalDate.now()).build();
+        Loan refused = Loan.builder().book(book).customer("Maria").customerEmail("maria@mail.com").loanDate(LocalDate.now()).build();
+
+        // execução
+        List<LoanCheckout> result = loanService.saveAll(Arrays.asList(first, second, refused));
+
+        // verificações
+        assertThat(result).extracting(LoanCheckout::isAccepted).containsExactly(true, true, false);
+        assertThat(customerRepository.findAll()).extracting(customer -> customer.getEmail()).containsExactly("alex@mail.com");
+        Integer customerId = customerRepository.findByEmail("alex@mail.com").get().getId();
+        assertThat(loanRepository.findById(first.getId()).get().getCustomerId()).isEqualTo(customerId);
+        assertThat(loanRepository.findById(second.getId()).get().getCustomerId()).isEqualTo(customerId);
+    }
+
+    /**
+     * @return the elapsed time in milliseconds.
+     */
+    private long runConcurrently(Runnable operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    operation.run();
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        executor.shutdown();
+        return elapsed;
+    }
+}
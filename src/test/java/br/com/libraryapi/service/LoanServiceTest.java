@@ -4,6 +4,8 @@ import br.com.libraryapi.api.dto.LoanFilterDTO;
 import br.com.libraryapi.exception.BussinessException;
 import br.com.libraryapi.model.Book;
 import br.com.libraryapi.model.Loan;
+import br.com.libraryapi.model.LoanCheckout;
+import br.com.libraryapi.repository.BookRepository;
 import br.com.libraryapi.repository.LoanRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,8 +18,11 @@ import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDate;
 import java.util.Arrays;
@@ -35,11 +40,20 @@ public class LoanServiceTest {
     @MockBean
     private LoanRepository loanRepository;
 
+    @MockBean
+    private BookRepository bookRepository;
+
+    @MockBean
+    private CirculationStats circulationStats;
+
+    @MockBean
+    private CustomerService customerService;
+
     private LoanService loanService;
 
     @BeforeEach
     public void setUp() {
-        this.loanService = new LoanServiceImpl(loanRepository);
+        this.loanService = new LoanServiceImpl(loanRepository, bookRepository, circulationStats, customerService);
     }
 
     @Test
@@ -60,7 +74,7 @@ public class LoanServiceTest {
                                 .loanDate(LocalDate.now())
                                 .build();
 
-        when(loanRepository.existsByBookAndNotReturned(book)).thenReturn(false);
+        when(bookRepository.checkoutCopy(11)).thenReturn(1);
         Mockito.when(loanRepository.save(savingLoan)).thenReturn(savedLoan);
 
         // execução
@@ -71,6 +85,25 @@ public class LoanServiceTest {
         assertThat(loan.getBook()).isEqualTo(savedLoan.getBook());
         assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
         assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
+        verify(circulationStats).loanCreated(savedLoan);
+    }
+
+    @Test
+    @DisplayName("Deve gravar o recibo do empréstimo na caixa de saída, na transação do empréstimo.")
+    public void saveLoanQueuesReceiptTest() {
+        // cenário
+        LoanMails loanMails = Mockito.mock(LoanMails.class);
+        ReflectionTestUtils.setField(loanService, "loanMails", loanMails);
+        Loan savingLoan = Loan.builder().book(Book.builder().id(11).build()).customerEmail("alex@mail.com").build();
+        Loan savedLoan = Loan.builder().id(11).book(savingLoan.getBook()).customerEmail("alex@mail.com").build();
+        when(bookRepository.checkoutCopy(11)).thenReturn(1);
+        when(loanRepository.save(savingLoan)).thenReturn(savedLoan);
+
+        // execução
+        loanService.save(savingLoan);
+
+        // verificações
+        verify(loanMails).checkedOut(savedLoan);
     }
 
     @Test
@@ -84,7 +117,7 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
 
-        when(loanRepository.existsByBookAndNotReturned(book)).thenReturn(true);
+        when(bookRepository.checkoutCopy(11)).thenReturn(0);
 
         // execução
         Throwable exception = catchThrowable(() -> loanService.save(savingLoan));
@@ -95,6 +128,42 @@ public class LoanServiceTest {
         Mockito.verify(loanRepository, never()).save(savingLoan);
     }
 
+    @Test
+    @DisplayName("Deve salvar empréstimos em lote, recusando livros sem exemplares disponíveis.")
+    public void saveAllLoansTest() {
+        // cenário
+        Book loanedBook = Book.builder().id(11).build();
+        Book freeBook = Book.builder().id(12).build();
+        Loan first = Loan.builder().book(loanedBook).customer("Alex").loanDate(LocalDate.now()).build();
+        Loan second = Loan.builder().book(freeBook).customer("Joel").loanDate(LocalDate.now()).build();
+        Loan third = Loan.builder().book(freeBook).customer("Maria").loanDate(LocalDate.now()).build();
+
+        when(bookRepository.checkoutCopies(11, 1)).thenReturn(0);
+        when(bookRepository.checkoutCopies(12, 2)).thenReturn(0);
+        when(bookRepository.findAvailableCopies(12)).thenReturn(1);
+        when(bookRepository.checkoutCopies(12, 1)).thenReturn(1);
+        when(loanRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(100));
+            return loans;
+        });
+
+        // execução
+        List<LoanCheckout> result = loanService.saveAll(Arrays.asList(first, second, third));
+
+        // verificações
+        assertThat(result).extracting(LoanCheckout::getLoan).containsExactly(first, second, third);
+        assertThat(result).extracting(LoanCheckout::isAccepted).containsExactly(false, true, false);
+        assertThat(first.getId()).isNull();
+        assertThat(second.getId()).isEqualTo(100);
+        assertThat(third.getId()).isNull();
+        verify(customerService).resolveAll(Arrays.asList(second));
+        verify(loanRepository).saveAll(Arrays.asList(second));
+        verify(circulationStats).loanCreated(second);
+        verify(circulationStats, never()).loanCreated(first);
+        verify(bookRepository, never()).checkoutCopy(Mockito.anyInt());
+    }
+
     @Test
     @DisplayName("Deve obter as informações de um empréstimo pelo id.")
     public void getLoanDetailsTest() {
@@ -128,6 +197,7 @@ public class LoanServiceTest {
         loan.setReturned(true);
 
         Mockito.when(loanRepository.save(loan)).thenReturn(loan);
+        Mockito.when(loanRepository.markReturned(id)).thenReturn(1);
 
         // execução
         Loan updatedLoan = loanService.update(loan);
@@ -135,6 +205,26 @@ public class LoanServiceTest {
         // verificações
         assertThat(updatedLoan.getReturned()).isTrue();
         verify(loanRepository).save(loan);
+        verify(bookRepository).returnCopy(11);
+        verify(circulationStats).loanReturned(loan);
+    }
+
+    @Test
+    @DisplayName("Não deve devolver o exemplar duas vezes ao devolver um empréstimo já devolvido.")
+    public void updateAlreadyReturnedLoanTest() {
+        // cenário
+        Loan loan = createLoan();
+        loan.setId(11);
+        loan.setReturned(true);
+
+        Mockito.when(loanRepository.markReturned(11)).thenReturn(0);
+
+        // execução
+        loanService.update(loan);
+
+        // verificações
+        verify(bookRepository, never()).returnCopy(Mockito.anyInt());
+        verify(circulationStats, never()).loanReturned(Mockito.any(Loan.class));
     }
 
     @Test
@@ -150,7 +240,8 @@ public class LoanServiceTest {
         List<Loan> list = Arrays.asList(loan);
         Page<Loan> page = new PageImpl<Loan>(list, pageRequest , list.size());
 
-        Mockito.when(loanRepository.findByBookIsbnOrCustomer(Mockito.anyString(), Mockito.anyString(), Mockito.any(PageRequest.class)))
+        Mockito.when(bookRepository.findIdByIsbn("321")).thenReturn(Optional.of(11));
+        Mockito.when(loanRepository.findAll(Mockito.<Specification<Loan>>any(), Mockito.any(PageRequest.class)))
                 .thenReturn(page);
 
         // execução
@@ -163,6 +254,39 @@ public class LoanServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
 
+    @Test
+    @DisplayName("Deve filtrar empréstimos só por livro.")
+    public void findLoansByIsbnTest() {
+        // cenário
+        LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().isbn("321").build();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Mockito.when(bookRepository.findIdByIsbn("321")).thenReturn(Optional.of(11));
+        Mockito.when(loanRepository.findAll(Mockito.<Specification<Loan>>any(), Mockito.any(PageRequest.class)))
+                .thenReturn(Page.empty(pageRequest));
+
+        // execução
+        loanService.find(loanFilterDTO, pageRequest);
+
+        // verificações
+        verify(loanRepository).findAll(Mockito.<Specification<Loan>>any(), Mockito.eq(pageRequest));
+    }
+
+    @Test
+    @DisplayName("Deve buscar os empréstimos de um cliente, mais recentes primeiro.")
+    public void getLoansByCustomerTest() {
+        // cenário
+        Loan loan = createLoan();
+        loan.setId(12);
+        Page<Loan> page = new PageImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), 1);
+        Mockito.when(loanRepository.findByCustomerIdOrderByLoanDateDescIdDesc(7, PageRequest.of(0, 10))).thenReturn(page);
+
+        // execução
+        Page<Loan> result = loanService.getLoansByCustomer(7, PageRequest.of(0, 10, Sort.by("customer")));
+
+        // verificações
+        assertThat(result.getContent()).containsExactly(loan);
+    }
+
     public Loan createLoan() {
         Book book = Book.builder().id(11).build();
         return Loan.builder()
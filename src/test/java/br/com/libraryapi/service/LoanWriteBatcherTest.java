@@ -0,0 +1,170 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.exception.BussinessException;
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanWriteBatcherTest {
+
+    private static final int OPERATIONS = 3;
+
+    @MockBean
+    private LoanService loanService;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    private LoanWriteBatcher batcher;
+
+    private ExecutorService requests;
+
+    @BeforeEach
+    public void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(loanService.save(any(Loan.class))).thenAnswer(invocation -> {
+            Loan loan = invocation.getArgument(0);
+            loan.setId(loan.getBook().getId() * 10);
+            return loan;
+        });
+        // a long linger, so the operations of a test always end up in one batch
+        batcher = new LoanWriteBatcher(loanService, transactionManager, OPERATIONS, 5_000, 1, 100, 10_000);
+        batcher.start();
+        requests = Executors.newFixedThreadPool(OPERATIONS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        requests.shutdownNow();
+        batcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve gravar empréstimos concorrentes em uma única transação.")
+    public void groupCommitTest() throws Exception {
+        // execução
+        List<Future<Loan>> results = saveConcurrently();
+
+        // verificações
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertThat(results.get(i).get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+        verify(loanService, times(OPERATIONS)).save(any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve devolver a recusa apenas ao pedido recusado, sem desfazer os demais.")
+    public void refusedOperationTest() throws Exception {
+        // cenário
+        doThrow(new BussinessException("Book already loaned."))
+                .when(loanService).save(argThat(loan -> loan.getBook().getId() == 2));
+
+        // execução
+        List<Future<Loan>> results = saveConcurrently();
+
+        // verificações
+        assertThat(results.get(0).get(5, TimeUnit.SECONDS).getId()).isEqualTo(10);
+        assertThat(failure(results.get(1))).isInstanceOf(BussinessException.class).hasMessage("Book already loaned.");
+        assertThat(results.get(2).get(5, TimeUnit.SECONDS).getId()).isEqualTo(30);
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Deve gravar um a um quando a transação do lote falhar.")
+    public void fallbackOnFailureTest() throws Exception {
+        // cenário
+        doThrow(new IllegalStateException("connection lost"))
+                .when(loanService).save(argThat(loan -> loan.getBook().getId() == 2));
+
+        // execução
+        List<Future<Loan>> results = saveConcurrently();
+
+        // verificações
+        assertThat(results.get(0).get(5, TimeUnit.SECONDS).getId()).isEqualTo(10);
+        assertThat(failure(results.get(1))).isInstanceOf(IllegalStateException.class).hasMessage("connection lost");
+        assertThat(results.get(2).get(5, TimeUnit.SECONDS).getId()).isEqualTo(30);
+        verify(transactionManager, times(1 + OPERATIONS)).getTransaction(any());
+    }
+
+    @Test
+    @DisplayName("Deve completar os pedidos do lote com erro quando a escrita lançar um Error.")
+    public void errorInBatchTest() throws Exception {
+        // cenário: só a primeira gravação do livro 2 falha
+        doThrow(new StackOverflowError()).doAnswer(invocation -> {
+            Loan loan = invocation.getArgument(0);
+            loan.setId(20);
+            return loan;
+        }).when(loanService).save(argThat(loan -> loan.getBook().getId() == 2));
+
+        // execução
+        List<Future<Loan>> results = saveConcurrently();
+
+        // verificações: o lote falha inteiro e o escritor continua atendendo
+        for (Future<Loan> result : results) {
+            assertThat(failure(result)).isInstanceOf(StackOverflowError.class);
+        }
+        List<Future<Loan>> next = saveConcurrently();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertThat(next.get(i).get(5, TimeUnit.SECONDS).getId()).isEqualTo((i + 1) * 10);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve responder 503 quando a gravação não terminar no tempo limite.")
+    public void timeoutTest() {
+        // cenário: sem escritores, nada é gravado
+        LoanWriteBatcher stalled = new LoanWriteBatcher(loanService, transactionManager, OPERATIONS, 5, 1, 100, 50);
+        Loan loan = Loan.builder().book(Book.builder().id(1).build()).customer("Alex").loanDate(LocalDate.now()).build();
+
+        // execução
+        Throwable exception = catchThrowable(() -> stalled.save(loan));
+
+        // verificações
+        assertThat(exception).isInstanceOf(ResponseStatusException.class);
+        assertThat(((ResponseStatusException) exception).getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        verify(loanService, never()).save(any(Loan.class));
+    }
+
+    private List<Future<Loan>> saveConcurrently() {
+        List<Future<Loan>> results = new ArrayList<>();
+        for (int i = 1; i <= OPERATIONS; i++) {
+            Loan loan = Loan.builder().book(Book.builder().id(i).build()).customer("Alex").loanDate(LocalDate.now()).build();
+            results.add(requests.submit(() -> batcher.save(loan)));
+        }
+        return results;
+    }
+
+    private Throwable failure(Future<Loan> result) {
+        Throwable exception = catchThrowable(() -> result.get(5, TimeUnit.SECONDS));
+        assertThat(exception).isInstanceOf(ExecutionException.class);
+        return exception.getCause();
+    }
+}
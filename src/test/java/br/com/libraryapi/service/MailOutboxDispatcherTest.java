@@ -0,0 +1,145 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.MailOutbox;
+import br.com.libraryapi.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class MailOutboxDispatcherTest {
+
+    @MockBean
+    private MailOutboxRepository mailOutboxRepository;
+
+    @MockBean
+    private JavaMailSender javaMailSender;
+
+    private MailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    public void setUp() {
+        dispatcher = new MailOutboxDispatcher(mailOutboxRepository, javaMailSender, new SimpleMeterRegistry(),
+                                              "mail@library.com", 10, 3, 30, 3600);
+    }
+
+    @Test
+    @DisplayName("Deve enviar os emails pendentes em lote e marcá-los como enviados.")
+    public void dispatchSentTest() {
+        // cenário
+        MailOutbox first = createMail(1, "alex@mail.com", 0);
+        MailOutbox second = createMail(2, "maria@mail.com", 0);
+        when(mailOutboxRepository.findDue(eq(MailOutbox.Status.PENDING), any(LocalDateTime.class), any()))
+                .thenReturn(Arrays.asList(first, second));
+
+        // execução
+        dispatcher.dispatch();
+
+        // verificações
+        ArgumentCaptor<SimpleMailMessage> messages = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(javaMailSender, times(1)).send(messages.capture(), messages.capture());
+        assertThat(messages.getAllValues()).extracting(message -> message.getTo()[0])
+                                           .containsExactly("alex@mail.com", "maria@mail.com");
+        assertThat(first.getStatus()).isEqualTo(MailOutbox.Status.SENT);
+        assertThat(second.getStatus()).isEqualTo(MailOutbox.Status.SENT);
+        assertThat(first.getSentAt()).isNotNull();
+        verify(mailOutboxRepository).saveAll(Arrays.asList(first, second));
+    }
+
+    @Test
+    @DisplayName("Deve reagendar com espera apenas os emails que falharam no lote.")
+    public void dispatchPartialFailureTest() {
+        // cenário
+        MailOutbox first = createMail(1, "alex@mail.com", 0);
+        MailOutbox second = createMail(2, "maria@mail.com", 1);
+        when(mailOutboxRepository.findDue(eq(MailOutbox.Status.PENDING), any(LocalDateTime.class), any()))
+                .thenReturn(Arrays.asList(first, second));
+        doAnswer(invocation -> {
+            Object refused = invocation.getArguments()[1];
+            Map<Object, Exception> failed = Collections.singletonMap(refused, new RuntimeException("mailbox unavailable"));
+            throw new MailSendException(failed);
+        }).when(javaMailSender).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+
+        // execução
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        // verificações
+        assertThat(first.getStatus()).isEqualTo(MailOutbox.Status.SENT);
+        assertThat(second.getStatus()).isEqualTo(MailOutbox.Status.PENDING);
+        assertThat(second.getAttempts()).isEqualTo(2);
+        assertThat(second.getLastError()).isEqualTo("mailbox unavailable");
+        assertThat(second.getNextAttemptAt()).isAfterOrEqualTo(before.plusSeconds(60));
+    }
+
+    @Test
+    @DisplayName("Deve desistir do email depois do número máximo de tentativas.")
+    public void dispatchGiveUpTest() {
+        // cenário
+        MailOutbox mail = createMail(1, "alex@mail.com", 2);
+        when(mailOutboxRepository.findDue(eq(MailOutbox.Status.PENDING), any(LocalDateTime.class), any()))
+                .thenReturn(Collections.singletonList(mail));
+        doThrow(new MailSendException("connection refused")).when(javaMailSender).send(ArgumentMatchers.<SimpleMailMessage[]>any());
+
+        // execução
+        dispatcher.dispatch();
+
+        // verificações
+        assertThat(mail.getStatus()).isEqualTo(MailOutbox.Status.FAILED);
+        assertThat(mail.getAttempts()).isEqualTo(3);
+        verify(mailOutboxRepository).saveAll(Collections.singletonList(mail));
+    }
+
+    @Test
+    @DisplayName("Deve gravar um email por destinatário na caixa de saída sem enviá-lo.")
+    public void emailServiceWritesOutboxTest() {
+        // cenário
+        EmailService emailService = new EmailServiceImpl(mailOutboxRepository);
+
+        // execução
+        emailService.sendMails(Arrays.asList("alex@mail.com", "maria@mail.com"), "Empréstimo registrado", "Atraso");
+
+        // verificações
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MailOutbox>> saved = ArgumentCaptor.forClass(List.class);
+        verify(mailOutboxRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(MailOutbox::getRecipient).containsExactly("alex@mail.com", "maria@mail.com");
+        assertThat(saved.getValue()).allMatch(mail -> mail.getStatus() == MailOutbox.Status.PENDING);
+        assertThat(saved.getValue()).allMatch(mail -> mail.getSubject().equals("Empréstimo registrado"));
+        verifyNoInteractions(javaMailSender);
+    }
+
+    private MailOutbox createMail(Integer id, String recipient, int attempts) {
+        LocalDateTime now = LocalDateTime.now();
+        return MailOutbox.builder()
+                         .id(id)
+                         .recipient(recipient)
+                         .subject("Livro com empréstimo atrasado")
+                         .message("Atraso")
+                         .status(MailOutbox.Status.PENDING)
+                         .attempts(attempts)
+                         .createdAt(now)
+                         .nextAttemptAt(now)
+                         .build();
+    }
+}
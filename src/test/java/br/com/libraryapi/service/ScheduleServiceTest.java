@@ -0,0 +1,130 @@
+package br.com.libraryapi.service;
+
+import br.com.libraryapi.model.Book;
+import br.com.libraryapi.model.Loan;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ScheduleServiceTest {
+
+    @MockBean
+    private LoanService loanService;
+
+    @MockBean
+    private EmailService emailService;
+
+    private MeterRegistry meterRegistry;
+
+    private ScheduleService scheduleService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduleService = new ScheduleService(loanService, emailService, meterRegistry, "Empréstimo atrasado.",
+                                              "Livro com empréstimo atrasado", 2, 2, false);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduleService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve enviar um único email por cliente com todos os livros atrasados, lendo em blocos.")
+    public void sendMailPerCustomerTest() {
+        // cenário
+        Loan first = createLoan(1, "alex@mail.com", "A Identidade Bourne", "111");
+        Loan second = createLoan(2, "alex@mail.com", "O Ultimato Bourne", "222");
+        Loan third = createLoan(3, "maria@mail.com", "Dom Casmurro", "333");
+        when(loanService.getLateLoans("", 0, 2)).thenReturn(Arrays.asList(first, second));
+        when(loanService.getLateLoans("alex@mail.com", 2, 2)).thenReturn(Collections.singletonList(third));
+
+        // execução
+        scheduleService.sendMailToLateLoans();
+
+        // verificações
+        ArgumentCaptor<String> alexMessage = ArgumentCaptor.forClass(String.class);
+        verify(emailService, times(1)).sendMail(eq("alex@mail.com"), eq("Livro com empréstimo atrasado"), alexMessage.capture());
+        assertThat(alexMessage.getValue()).startsWith("Empréstimo atrasado.")
+                                          .contains("A Identidade Bourne (ISBN 111)")
+                                          .contains("O Ultimato Bourne (ISBN 222)");
+        verify(emailService, times(1)).sendMail(eq("maria@mail.com"), anyString(), contains("Dom Casmurro"));
+        verify(emailService, never()).sendMails(anyList(), anyString(), anyString());
+        assertThat(meterRegistry.get("library.late-loans.mails").tag("result", "queued").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("library.late-loans.loans").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve contabilizar sem repetir as notificações que não puderam ser gravadas na caixa de saída.")
+    public void queueFailureTest() {
+        // cenário
+        Loan first = createLoan(1, "alex@mail.com", "A Identidade Bourne", "111");
+        Loan second = createLoan(2, "maria@mail.com", "Dom Casmurro", "333");
+        when(loanService.getLateLoans("", 0, 2)).thenReturn(Arrays.asList(first, second));
+        when(loanService.getLateLoans("maria@mail.com", 2, 2)).thenReturn(Collections.emptyList());
+        doThrow(new QueryTimeoutException("timeout"))
+                .when(emailService).sendMail(eq("maria@mail.com"), anyString(), anyString());
+
+        // execução
+        scheduleService.sendMailToLateLoans();
+
+        // verificações
+        verify(emailService, times(1)).sendMail(eq("alex@mail.com"), anyString(), anyString());
+        verify(emailService, times(1)).sendMail(eq("maria@mail.com"), anyString(), anyString());
+        assertThat(meterRegistry.get("library.late-loans.mails").tag("result", "queued").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.late-loans.mails").tag("result", "failed").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.late-loans.job").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve interromper o envio, sem travar, quando o serviço já foi encerrado.")
+    public void sendAfterShutdownTest() {
+        // cenário
+        Loan first = createLoan(1, "alex@mail.com", "A Identidade Bourne", "111");
+        when(loanService.getLateLoans("", 0, 2)).thenReturn(Collections.singletonList(first));
+        scheduleService.shutdown();
+
+        // execução
+        Throwable exception = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                                                        () -> catchThrowable(scheduleService::sendMailToLateLoans));
+
+        // verificações
+        assertThat(exception).isInstanceOf(RejectedExecutionException.class);
+        verify(emailService, never()).sendMail(anyString(), anyString(), anyString());
+    }
+
+    private Loan createLoan(Integer id, String email, String title, String isbn) {
+        Book book = Book.builder().id(id).title(title).isbn(isbn).build();
+        return Loan.builder()
+                   .id(id)
+                   .book(book)
+                   .customer(email)
+                   .customerEmail(email)
+                   .loanDate(LocalDate.now().minusDays(5))
+                   .build();
+    }
+}